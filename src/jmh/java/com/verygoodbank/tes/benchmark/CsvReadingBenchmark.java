@@ -0,0 +1,66 @@
+package com.verygoodbank.tes.benchmark;
+
+import com.verygoodbank.tes.web.dto.TradeRow;
+import com.verygoodbank.tes.web.utils.CsvChunkReader;
+import com.verygoodbank.tes.web.utils.TradeCsvTokenizer;
+import org.apache.commons.csv.CSVRecord;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import static com.verygoodbank.tes.web.utils.CSVUtils.TRADE_IN_HEADERS;
+import static com.verygoodbank.tes.web.utils.CSVUtils.readCsv;
+import static java.nio.file.Files.newInputStream;
+
+/**
+ * Compares reading a whole trade file with {@code CSVUtils.readCsv}, which materializes every record,
+ * with {@link CsvChunkReader} and {@link TradeCsvTokenizer} used by the enrichment pipeline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CsvReadingBenchmark {
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    private Path tradeFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        tradeFile = TradeFiles.tradeFile(rows);
+    }
+
+    @Benchmark
+    public void readCsvRecords(RowCounters counters, Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = newInputStream(tradeFile)) {
+            for (CSVRecord csvRecord : readCsv(inputStream, TRADE_IN_HEADERS)) {
+                blackhole.consume(csvRecord);
+                counters.rows++;
+            }
+        }
+    }
+
+    @Benchmark
+    public void tokenizeTradeChunks(RowCounters counters, Blackhole blackhole) throws IOException {
+        try (InputStream inputStream = new BufferedInputStream(newInputStream(tradeFile), CHUNK_SIZE)) {
+            CsvChunkReader chunkReader = new CsvChunkReader(inputStream, CHUNK_SIZE);
+            TradeRow tradeRow = new TradeRow();
+            byte[] chunk;
+            while ((chunk = chunkReader.nextChunk()) != null) {
+                TradeCsvTokenizer tokenizer = new TradeCsvTokenizer(chunk);
+                while (tokenizer.next(tradeRow)) {
+                    blackhole.consume(tradeRow.getPrice());
+                    counters.rows++;
+                }
+            }
+        }
+    }
+}
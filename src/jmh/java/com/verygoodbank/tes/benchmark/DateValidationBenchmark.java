@@ -0,0 +1,61 @@
+package com.verygoodbank.tes.benchmark;
+
+import com.verygoodbank.tes.web.validation.BasicIsoDateValidator;
+import com.verygoodbank.tes.web.validation.DateFormatValidator;
+import org.openjdk.jmh.annotations.*;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import static java.time.format.DateTimeFormatter.BASIC_ISO_DATE;
+
+/**
+ * Compares the exception-driven {@link DateFormatValidator} with the arithmetic {@link BasicIsoDateValidator}
+ * on batches of dates with the given share of invalid ones.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DateValidationBenchmark {
+    private static final int DATES = 1_024;
+
+    @Param({"0", "10", "50"})
+    private int invalidPercent;
+
+    private final DateFormatValidator dateFormatValidator = new DateFormatValidator(BASIC_ISO_DATE);
+    private final BasicIsoDateValidator basicIsoDateValidator = new BasicIsoDateValidator();
+    private String[] dates;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        dates = new String[DATES];
+        for (int index = 0; index < DATES; index++) {
+            int day = 1 + random.nextInt(28);
+            dates[index] = random.nextInt(100) < invalidPercent
+                ? String.format("2016%02d%02d", 13 + random.nextInt(87), day)
+                : String.format("2016%02d%02d", 1 + random.nextInt(12), day);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DATES)
+    public int dateFormatValidator() {
+        int valid = 0;
+        for (String date : dates) {
+            if (dateFormatValidator.isValid(date)) valid++;
+        }
+        return valid;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DATES)
+    public int basicIsoDateValidator() {
+        int valid = 0;
+        for (String date : dates) {
+            if (basicIsoDateValidator.isValid(date)) valid++;
+        }
+        return valid;
+    }
+}
@@ -0,0 +1,97 @@
+package com.verygoodbank.tes.benchmark;
+
+import com.verygoodbank.tes.TradeEnrichmentServiceApplication;
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+
+/**
+ * Load test of the {@code /api/v1/enrich} endpoint with many concurrent uploads, comparing request handling
+ * and chunk enrichment on platform threads with virtual threads ({@code spring.threads.virtual.enabled}).
+ * The application is started with a {@link SlowProductStore}, so every chunk blocks on a simulated
+ * product lookup round trip.
+ *
+ * <p> The throughput mode reports requests per second and the sample time mode reports the latency
+ * percentiles, including p0.99.
+ * Virtual threads are only used when the benchmark runs on Java 21 or later; on older versions both
+ * parameter values measure platform threads.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(128)
+@Fork(1)
+public class EnrichmentEndpointLoadBenchmark {
+    private static final String BOUNDARY = "trade-enrichment-load-test";
+
+    @Param({"false", "true"})
+    private boolean virtualThreads;
+
+    @Param({"10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() throws Exception {
+        context = new SpringApplicationBuilder(TradeEnrichmentServiceApplication.class, SlowProductStore.class)
+            .run(
+                "--server.port=0",
+                "--products.store=slow",
+                "--spring.threads.virtual.enabled=" + virtualThreads,
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"
+            );
+        context.getBean(ProductCacheWarmUp.class)
+            .awaitReady(Duration.ofMinutes(1));
+        String port = context.getEnvironment().getProperty("local.server.port");
+        httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/enrich"))
+            .header("Content-Type", "multipart/form-data; boundary=" + BOUNDARY)
+            .POST(HttpRequest.BodyPublishers.ofByteArray(createMultipartBody(readAllBytes(TradeFiles.tradeFile(rows)))))
+            .build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int enrichTrades() throws IOException, InterruptedException {
+        HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected response status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    private static byte[] createMultipartBody(byte[] file) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(file.length + 256);
+        body.write((
+            "--" + BOUNDARY + "\r\n" +
+                "Content-Disposition: form-data; name=\"file\"; filename=\"trade.csv\"\r\n" +
+                "Content-Type: text/csv\r\n\r\n"
+        ).getBytes(UTF_8));
+        body.write(file);
+        body.write(("\r\n--" + BOUNDARY + "--\r\n").getBytes(UTF_8));
+        return body.toByteArray();
+    }
+}
@@ -0,0 +1,200 @@
+package com.verygoodbank.tes.benchmark;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.InternalSerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.hazelcast.internal.serialization.impl.compact.Schema;
+import com.hazelcast.internal.serialization.impl.compact.SchemaService;
+import com.hazelcast.nio.ObjectDataInput;
+import com.hazelcast.nio.ObjectDataOutput;
+import com.hazelcast.nio.serialization.IdentifiedDataSerializable;
+import com.hazelcast.nio.serialization.compact.CompactReader;
+import com.hazelcast.nio.serialization.compact.CompactSerializer;
+import com.hazelcast.nio.serialization.compact.CompactWriter;
+import com.verygoodbank.tes.web.config.serializer.ProductSerializer;
+import com.verygoodbank.tes.web.dto.cache.Product;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the formats a {@link Product} can be stored in, registered in a Hazelcast serialization service
+ * the same way as in the client configuration:
+ * {@code stream} is {@link ProductSerializer}, {@code stream-canonical} is {@link ProductSerializer} returning
+ * canonical products, {@code identified} is {@link IdentifiedDataSerializable} and {@code compact}
+ * is the Compact format.
+ *
+ * <p> Every invocation writes or reads one of {@code PRODUCTS} products with distinct names.
+ * The average serialized size of an entry, including the Hazelcast header, is printed during the setup.
+ * Compact schemas are kept in memory instead of being replicated to a cluster.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProductSerializerBenchmark {
+    private static final int PRODUCTS = 1_000;
+    private static final String[] WORDS = {
+        "Treasury", "Bills", "Corporate", "Bonds", "Municipal", "Interest", "rate", "swaps", "Domestic", "International"
+    };
+
+    @Param({"stream", "stream-canonical", "identified", "compact"})
+    private String format;
+
+    private InternalSerializationService serializationService;
+    private Object[] products;
+    private Data[] productData;
+    private int index;
+
+    @Setup
+    public void setUp() {
+        serializationService = new DefaultSerializationServiceBuilder()
+            .setConfig(createSerializationConfig())
+            .setSchemaService(new LocalSchemaService())
+            .build();
+        Random random = new Random(42);
+        products = new Object[PRODUCTS];
+        productData = new Data[PRODUCTS];
+        long totalSize = 0;
+        for (int product = 0; product < PRODUCTS; product++) {
+            String productName = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)] +
+                " " + WORDS[random.nextInt(WORDS.length)] + " " + product;
+            products[product] = createProduct(productName);
+            productData[product] = serializationService.toData(products[product]);
+            totalSize += productData[product].totalSize();
+        }
+        System.out.printf("%n%s: %.1f bytes per entry%n", format, (double) totalSize / PRODUCTS);
+    }
+
+    @TearDown
+    public void tearDown() {
+        serializationService.dispose();
+    }
+
+    @Benchmark
+    public Data write() {
+        return serializationService.toData(products[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object read() {
+        return serializationService.toObject(productData[nextIndex()]);
+    }
+
+    private int nextIndex() {
+        index = index + 1 == PRODUCTS ? 0 : index + 1;
+        return index;
+    }
+
+    private SerializationConfig createSerializationConfig() {
+        SerializationConfig serializationConfig = new SerializationConfig();
+        switch (format) {
+            case "stream" -> serializationConfig.addSerializerConfig(productSerializerConfig(new ProductSerializer()));
+            case "stream-canonical" -> serializationConfig.addSerializerConfig(
+                productSerializerConfig(new ProductSerializer(PRODUCTS))
+            );
+            case "identified" -> serializationConfig.addDataSerializableFactory(
+                IdentifiedProduct.FACTORY_ID, classId -> new IdentifiedProduct()
+            );
+            case "compact" -> serializationConfig.getCompactSerializationConfig()
+                .addSerializer(new CompactProductSerializer());
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        }
+        return serializationConfig;
+    }
+
+    private SerializerConfig productSerializerConfig(ProductSerializer productSerializer) {
+        return new SerializerConfig()
+            .setImplementation(productSerializer)
+            .setTypeClass(Product.class);
+    }
+
+    private Object createProduct(String productName) {
+        return switch (format) {
+            case "identified" -> new IdentifiedProduct(productName);
+            case "compact" -> new CompactProduct(productName);
+            default -> new Product(productName);
+        };
+    }
+
+    public static class IdentifiedProduct implements IdentifiedDataSerializable {
+        static final int FACTORY_ID = 1;
+        private String productName;
+
+        public IdentifiedProduct() {}
+
+        IdentifiedProduct(String productName) {
+            this.productName = productName;
+        }
+
+        @Override
+        public void writeData(ObjectDataOutput out) throws IOException {
+            out.writeString(productName);
+        }
+
+        @Override
+        public void readData(ObjectDataInput in) throws IOException {
+            productName = in.readString();
+        }
+
+        @Override
+        public int getFactoryId() {
+            return FACTORY_ID;
+        }
+
+        @Override
+        public int getClassId() {
+            return 1;
+        }
+    }
+
+    public record CompactProduct(String productName) {}
+
+    static class LocalSchemaService implements SchemaService {
+        private final Map<Long, Schema> schemas = new ConcurrentHashMap<>();
+
+        @Override
+        public Schema get(long schemaId) {
+            return schemas.get(schemaId);
+        }
+
+        @Override
+        public void put(Schema schema) {
+            schemas.put(schema.getSchemaId(), schema);
+        }
+
+        @Override
+        public void putLocal(Schema schema) {
+            put(schema);
+        }
+    }
+
+    static class CompactProductSerializer implements CompactSerializer<CompactProduct> {
+        @Override
+        public CompactProduct read(CompactReader reader) {
+            return new CompactProduct(reader.readString("productName"));
+        }
+
+        @Override
+        public void write(CompactWriter writer, CompactProduct product) {
+            writer.writeString("productName", product.productName());
+        }
+
+        @Override
+        public String getTypeName() {
+            return "product";
+        }
+
+        @Override
+        public Class<CompactProduct> getCompactClass() {
+            return CompactProduct.class;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.verygoodbank.tes.benchmark;
+
+import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.service.cache.LocalProductStore;
+import com.verygoodbank.tes.web.service.cache.ProductStore;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * SlowProductStore stands in for a remote product store: products are kept in a {@link LocalProductStore},
+ * but every batched lookup blocks for {@code benchmark.lookup.latency.millis} milliseconds (2 by default),
+ * like a Hazelcast round trip.
+ */
+public class SlowProductStore implements ProductStore {
+    private final LocalProductStore products = new LocalProductStore();
+    private final long lookupLatencyMillis = Long.getLong("benchmark.lookup.latency.millis", 2);
+
+    @Override
+    public void put(long productId, Product product) {
+        products.put(productId, product);
+    }
+
+    @Override
+    public void putAll(Map<Long, Product> products) {
+        this.products.putAll(products);
+    }
+
+    @Override
+    public Product get(long productId) {
+        sleep();
+        return products.get(productId);
+    }
+
+    @Override
+    public Map<Long, Product> getAll(Set<Long> productIds) {
+        sleep();
+        return products.getAll(productIds);
+    }
+
+    @Override
+    public Set<Long> getProductIds() {
+        return products.getProductIds();
+    }
+
+    @Override
+    public void evict(long productId) {
+        products.evict(productId);
+    }
+
+    @Override
+    public void evictAll(Set<Long> productIds) {
+        products.evictAll(productIds);
+    }
+
+    @Override
+    public long nextGeneration() {
+        return products.nextGeneration();
+    }
+
+    @Override
+    public void stampGeneration(Set<Long> productIds, long generation) {
+        products.stampGeneration(productIds, generation);
+    }
+
+    @Override
+    public int removeOlderGenerations(long generation) {
+        return products.removeOlderGenerations(generation);
+    }
+
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    private void sleep() {
+        try {
+            Thread.sleep(lookupLatencyMillis);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
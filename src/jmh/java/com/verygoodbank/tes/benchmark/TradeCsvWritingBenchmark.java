@@ -0,0 +1,66 @@
+package com.verygoodbank.tes.benchmark;
+
+import com.verygoodbank.tes.web.dto.Trade;
+import com.verygoodbank.tes.web.utils.TradeCsvWriter;
+import org.apache.commons.csv.CSVPrinter;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import static com.verygoodbank.tes.web.utils.AppUtils.COMMA;
+import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvPrinter;
+
+/**
+ * Compares writing enriched trades through {@code Trade.toString().split(COMMA)} and {@link CSVPrinter},
+ * as the enrichment did before, with {@link TradeCsvWriter}.
+ * Scores and allocation rates ({@code -prof gc}) are reported per written row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TradeCsvWritingBenchmark {
+    private static final int ROWS = 10_000;
+    private static final String[] PRODUCT_NAMES = {
+        "Treasury Bills Domestic", "Corporate Bonds Domestic", "REPO Domestic", "Interest rate swaps International"
+    };
+
+    private Trade[] trades;
+    private StringBuilder out;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        trades = new Trade[ROWS];
+        for (int index = 0; index < ROWS; index++) {
+            trades[index] = new Trade("20160101", index, "EUR", random.nextInt(1_000_000) / 100.0);
+            trades[index].setProductName(PRODUCT_NAMES[random.nextInt(PRODUCT_NAMES.length)]);
+        }
+        out = new StringBuilder(ROWS * 64);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int toStringSplitCsvPrinter() throws IOException {
+        out.setLength(0);
+        try (CSVPrinter csvPrinter = getCsvPrinter(out)) {
+            for (Trade trade : trades) {
+                csvPrinter.printRecord((Object[]) trade.toString().split(COMMA));
+            }
+        }
+        return out.length();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public int tradeCsvWriter() {
+        out.setLength(0);
+        TradeCsvWriter tradeCsvWriter = new TradeCsvWriter(out);
+        for (Trade trade : trades) {
+            tradeCsvWriter.write(trade);
+        }
+        return out.length();
+    }
+}
@@ -0,0 +1,75 @@
+package com.verygoodbank.tes.benchmark;
+
+import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.metrics.ProductCacheMetrics;
+import com.verygoodbank.tes.web.metrics.TradeEnrichmentMetrics;
+import com.verygoodbank.tes.web.service.OutputFileRegistry;
+import com.verygoodbank.tes.web.service.TradeService;
+import com.verygoodbank.tes.web.service.cache.LocalProductStore;
+import com.verygoodbank.tes.web.service.cache.ProductCacheService;
+import com.verygoodbank.tes.web.service.cache.ProductNegativeCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import static java.nio.file.Files.newInputStream;
+
+/**
+ * Measures {@link TradeService} enrichment end to end, from the trade file to a discarding output stream.
+ * Products are kept in a {@link LocalProductStore}, standing in for the Hazelcast cluster.
+ * The {@code parallelism} parameter is the size of the enrichment worker pool, where {@code 0} means
+ * one thread per available processor.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(1)
+public class TradeEnrichmentBenchmark {
+
+    @Param({"10000", "1000000", "10000000"})
+    private int rows;
+
+    @Param({"1", "0"})
+    private int parallelism;
+
+    private Path tradeFile;
+    private TradeService tradeService;
+
+    @Setup
+    public void setUp() throws IOException {
+        tradeFile = TradeFiles.tradeFile(rows);
+        MeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ProductCacheService productCacheService = new ProductCacheService(
+            new LocalProductStore(), new ProductCacheMetrics(meterRegistry),
+            new ProductNegativeCache(true, 1000, 100000, 0.01)
+        );
+        for (long productId = 1; productId <= TradeFiles.PRODUCTS; productId++) {
+            productCacheService.put(productId, new Product("Product " + productId));
+        }
+        tradeService = new TradeService(
+            productCacheService,
+            new OutputFileRegistry(tradeFile.resolveSibling("trade-enrichment-output").toString(), 60),
+            new TradeEnrichmentMetrics(meterRegistry),
+            parallelism, 1 << 16, 64, false
+        );
+    }
+
+    @TearDown
+    public void tearDown() {
+        tradeService.shutdown();
+    }
+
+    @Benchmark
+    public void enrichTrades(RowCounters counters) throws IOException {
+        try (InputStream inputStream = newInputStream(tradeFile)) {
+            tradeService.enrichTrades(inputStream, OutputStream.nullOutputStream());
+        }
+        counters.rows += rows;
+    }
+}
@@ -0,0 +1,56 @@
+package com.verygoodbank.tes.benchmark;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.util.Random;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.newBufferedWriter;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+
+/**
+ * TradeFiles generates the trade files used by the benchmarks.
+ * A file is generated once per number of rows into the directory given by the {@code jmh.data.dir}
+ * system property ({@code target/benchmark-data} by default) and reused by later runs and forks.
+ *
+ * <p> Rows reference the products of {@code product.csv} and a few unknown product ids,
+ * and about one row in a hundred has an invalid date.
+ */
+public final class TradeFiles {
+    public static final int PRODUCTS = 10;
+    private static final String[] CURRENCIES = { "EUR", "USD", "GBP", "JPY" };
+
+    private TradeFiles() {}
+
+    public static Path tradeFile(int rows) throws IOException {
+        Path directory = Path.of(System.getProperty("jmh.data.dir", "target/benchmark-data"));
+        Path file = directory.resolve("trade-" + rows + ".csv");
+        if (exists(file)) return file;
+        createDirectories(directory);
+        Path temporaryFile = directory.resolve("trade-" + rows + ".csv.tmp");
+        try (Writer writer = new BufferedWriter(newBufferedWriter(temporaryFile, UTF_8), 1 << 16)) {
+            writeTrades(writer, rows);
+        }
+        return move(temporaryFile, file, ATOMIC_MOVE);
+    }
+
+    private static void writeTrades(Writer writer, int rows) throws IOException {
+        Random random = new Random(rows);
+        writer.write("date,product_id,currency,price\n");
+        for (int row = 0; row < rows; row++) {
+            String date = random.nextInt(100) == 0 ? "2016011" : "201601" + (10 + random.nextInt(19));
+            writer.write(date);
+            writer.write(',');
+            writer.write(Integer.toString(1 + random.nextInt(PRODUCTS + 2)));
+            writer.write(',');
+            writer.write(CURRENCIES[random.nextInt(CURRENCIES.length)]);
+            writer.write(',');
+            writer.write(Double.toString(random.nextInt(10_000_000) / 100.0));
+            writer.write('\n');
+        }
+    }
+}
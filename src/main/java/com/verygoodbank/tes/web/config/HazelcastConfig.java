@@ -1,14 +1,32 @@
 package com.verygoodbank.tes.web.config;
 
 import com.hazelcast.client.config.ClientConfig;
+import com.hazelcast.config.EvictionConfig;
+import com.hazelcast.config.NearCacheConfig;
 import com.hazelcast.config.SerializerConfig;
 import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.IExecutorService;
+import com.hazelcast.cp.IAtomicLong;
 import com.hazelcast.map.IMap;
+import com.hazelcast.partition.PartitionService;
 import com.verygoodbank.tes.web.config.serializer.ProductSerializer;
 import com.verygoodbank.tes.web.dto.cache.BaseWrapper;
 import com.verygoodbank.tes.web.dto.cache.Product;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
 import static com.hazelcast.client.HazelcastClient.newHazelcastClient;
+import static com.hazelcast.config.EvictionPolicy.LRU;
+import static com.hazelcast.config.InMemoryFormat.OBJECT;
+import static com.hazelcast.config.MaxSizePolicy.ENTRY_COUNT;
+import static com.verygoodbank.tes.web.service.cache.ProductCacheService.PRODUCTS;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
 
 /**
  * HazelcastConfig is a component class responsible for configuring and providing access
@@ -17,29 +35,147 @@ import static com.hazelcast.client.HazelcastClient.newHazelcastClient;
  * of a Hazelcast client instance and offers methods to retrieve distributed maps for caching purposes.
  *
  * <p> This class specifically handles the creation of a Hazelcast {@link HazelcastInstance}
- * and provides utility methods to access Hazelcast {@link IMap} instances.
+ * and provides utility methods to access Hazelcast {@link IMap} instances, including the maps of
+ * catalogue generations, whose plain {@code Long} values can be queried by the cluster members,
+ * the atomic longs the generations are drawn from and the executors running tasks on the members.
  *
  * <p> The configuration for Hazelcast client is set up by the {@link #createClientConfig()} method,
- * which includes custom serialization configuration for distributed objects.
+ * which connects to the cluster {@code products.hazelcast.cluster-name} at {@code products.hazelcast.addresses},
+ * or at the Hazelcast default addresses on the local host when none are configured, and includes
+ * custom serialization configuration for distributed objects and a near cache for the products map.
+ * The near cache keeps recently read products in the client process, bounded by
+ * {@code products.near-cache.max-size} entries and {@code products.near-cache.time-to-live-seconds},
+ * and is invalidated by the cluster whenever a product is put or evicted.
+ * With a positive {@code products.serialization.canonical-products}, products read from the cluster
+ * share one instance per product name, see {@link ProductSerializer}.
+ *
+ * <p> The client connects to the cluster on a background thread, so creating this component does not wait
+ * for the cluster and the rest of the context starts in parallel; the maps are only obtained once the client
+ * is connected, and a failed connection is started again by the next access to a map.
+ *
+ * <p> The client is only created when products are kept in Hazelcast,
+ * i.e. unless {@code products.store=local} is configured.
  */
 @Component
+@ConditionalOnProperty(name = "products.store", havingValue = "hazelcast", matchIfMissing = true)
 public class HazelcastConfig {
-    private final HazelcastInstance hazelcastInstance = newHazelcastClient(createClientConfig());
+    private final int nearCacheMaxSize;
+    private final int nearCacheTimeToLiveSeconds;
+    private final int canonicalProducts;
+    private final String clusterName;
+    private final List<String> clusterAddresses;
+    private final List<Consumer<HazelcastInstance>> clientStartListeners = new ArrayList<>();
+    private HazelcastInstance startedClient;
+    private volatile CompletableFuture<HazelcastInstance> hazelcastInstance;
+
+    public HazelcastConfig(
+        @Value("${products.near-cache.max-size:10000}") int nearCacheMaxSize,
+        @Value("${products.near-cache.time-to-live-seconds:600}") int nearCacheTimeToLiveSeconds,
+        @Value("${products.serialization.canonical-products:0}") int canonicalProducts,
+        @Value("${products.hazelcast.cluster-name:dev}") String clusterName,
+        @Value("${products.hazelcast.addresses:}") List<String> clusterAddresses
+    ) {
+        this.nearCacheMaxSize = nearCacheMaxSize;
+        this.nearCacheTimeToLiveSeconds = nearCacheTimeToLiveSeconds;
+        this.canonicalProducts = canonicalProducts;
+        this.clusterName = clusterName;
+        this.clusterAddresses = clusterAddresses;
+        this.hazelcastInstance = startClient();
+    }
 
     public <T extends BaseWrapper> IMap<Long, T> getCacheMap(String cacheMapName) {
-        return hazelcastInstance.getMap(cacheMapName);
+        return getHazelcastInstance().getMap(cacheMapName);
+    }
+
+    public IMap<Long, Long> getGenerationMap(String generationMapName) {
+        return getHazelcastInstance().getMap(generationMapName);
+    }
+
+    /**
+     * Returns a cluster-wide atomic long; without CP members configured it is kept in a partition
+     * of the cluster, see {@link com.hazelcast.cp.CPSubsystem}.
+     */
+    public IAtomicLong getAtomicLong(String atomicLongName) {
+        return getHazelcastInstance().getCPSubsystem().getAtomicLong(atomicLongName);
+    }
+
+    public IExecutorService getExecutorService(String executorServiceName) {
+        return getHazelcastInstance().getExecutorService(executorServiceName);
+    }
+
+    /**
+     * Calls the listener once with the current client, as soon as it is connected, and once with every client
+     * started again later, before the client is used for any map.
+     */
+    public void onClientStarted(Consumer<HazelcastInstance> clientStartListener) {
+        synchronized (clientStartListeners) {
+            clientStartListeners.add(clientStartListener);
+            if (startedClient != null) clientStartListener.accept(startedClient);
+        }
+    }
+
+    public PartitionService getPartitionService() {
+        return getHazelcastInstance().getPartitionService();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hazelcastInstance.thenAccept(HazelcastInstance::shutdown);
+    }
+
+    private HazelcastInstance getHazelcastInstance() {
+        CompletableFuture<HazelcastInstance> client = hazelcastInstance;
+        try {
+            return client.join();
+        } catch (CompletionException exception) {
+            restartClient(client);
+            throw new RuntimeException("An error occurred during connecting to the Hazelcast cluster", exception.getCause());
+        }
+    }
+
+    private synchronized void restartClient(CompletableFuture<HazelcastInstance> failedClient) {
+        if (hazelcastInstance == failedClient) hazelcastInstance = startClient();
+    }
+
+    private CompletableFuture<HazelcastInstance> startClient() {
+        return supplyAsync(() -> {
+            HazelcastInstance client = newHazelcastClient(createClientConfig());
+            synchronized (clientStartListeners) {
+                startedClient = client;
+                clientStartListeners.forEach(clientStartListener -> clientStartListener.accept(client));
+            }
+            return client;
+        }, runnable -> {
+            Thread thread = new Thread(runnable, "hazelcast-client-start");
+            thread.setDaemon(true);
+            thread.start();
+        });
     }
 
     public ClientConfig createClientConfig() {
-        ClientConfig config = new ClientConfig();
+        ClientConfig config = new ClientConfig().setClusterName(clusterName);
+        if (!clusterAddresses.isEmpty()) config.getNetworkConfig().setAddresses(new ArrayList<>(clusterAddresses));
         config.getSerializationConfig()
             .addSerializerConfig(serializerConfig());
+        config.addNearCacheConfig(productsNearCacheConfig());
         return config;
     }
 
     private SerializerConfig serializerConfig() {
         return new SerializerConfig()
-            .setImplementation(new ProductSerializer())
+            .setImplementation(new ProductSerializer(canonicalProducts))
             .setTypeClass(Product.class);
     }
+
+    private NearCacheConfig productsNearCacheConfig() {
+        EvictionConfig evictionConfig = new EvictionConfig()
+            .setEvictionPolicy(LRU)
+            .setMaxSizePolicy(ENTRY_COUNT)
+            .setSize(nearCacheMaxSize);
+        return new NearCacheConfig(PRODUCTS)
+            .setInMemoryFormat(OBJECT)
+            .setInvalidateOnChange(true)
+            .setTimeToLiveSeconds(nearCacheTimeToLiveSeconds)
+            .setEvictionConfig(evictionConfig);
+    }
 }
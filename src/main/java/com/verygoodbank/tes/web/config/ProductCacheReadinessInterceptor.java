@@ -0,0 +1,33 @@
+package com.verygoodbank.tes.web.config;
+
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.HandlerInterceptor;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * ProductCacheReadinessInterceptor rejects enrichment requests with {@code 503 Service Unavailable}
+ * and a {@code Retry-After} header while {@link ProductCacheWarmUp} is still loading the product catalogue,
+ * so that no trade is enriched against a cold or incomplete product cache.
+ */
+@Component
+public class ProductCacheReadinessInterceptor implements HandlerInterceptor {
+    private static final String RETRY_AFTER_SECONDS = "5";
+
+    private final ProductCacheWarmUp productCacheWarmUp;
+
+    public ProductCacheReadinessInterceptor(ProductCacheWarmUp productCacheWarmUp) {
+        this.productCacheWarmUp = productCacheWarmUp;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (productCacheWarmUp.isReady()) return true;
+        response.setHeader(RETRY_AFTER, RETRY_AFTER_SECONDS);
+        throw new ResponseStatusException(SERVICE_UNAVAILABLE, "The product cache is warming up");
+    }
+}
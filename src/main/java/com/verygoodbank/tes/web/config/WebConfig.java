@@ -0,0 +1,24 @@
+package com.verygoodbank.tes.web.config;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * WebConfig registers {@link ProductCacheReadinessInterceptor} for the enrichment endpoints,
+ * which keeps them from taking traffic until the product cache is warm.
+ */
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+    private final ProductCacheReadinessInterceptor productCacheReadinessInterceptor;
+
+    public WebConfig(ProductCacheReadinessInterceptor productCacheReadinessInterceptor) {
+        this.productCacheReadinessInterceptor = productCacheReadinessInterceptor;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(productCacheReadinessInterceptor)
+            .addPathPatterns("/api/v1/enrich", "/api/v1/enrich/**");
+    }
+}
@@ -5,22 +5,92 @@ import com.hazelcast.nio.ObjectDataOutput;
 import com.hazelcast.nio.serialization.StreamSerializer;
 import com.verygoodbank.tes.web.dto.cache.Product;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import static java.nio.charset.StandardCharsets.UTF_8;
 
+/**
+ * ProductSerializer writes a {@link Product} as its name, i.e. the length and the UTF-8 bytes of the name,
+ * which is smaller than the identified and the Compact formats, since it needs neither
+ * the factory and class ids nor a schema id.
+ *
+ * <p> With a positive {@code canonicalProducts} number, read products are kept in a direct-mapped table
+ * of four times as many slots, indexed by the hash of the encoded name, and a read of a name that is already
+ * in the table returns the same immutable {@link Product} instance instead of decoding a new one.
+ * The name bytes are read into a per-thread buffer, so such a read does not allocate at all.
+ * A name colliding with another one simply replaces it in the table, and a {@code null} name,
+ * written with a negative length, is read as a new product without a name.
+ */
 public class ProductSerializer implements StreamSerializer<Product> {
+    public static final int PRODUCT_TYPE_ID = 1;
+
+    private final AtomicReferenceArray<CanonicalProduct> canonicalProducts;
+    private final int canonicalProductsMask;
+    private final ThreadLocal<byte[]> nameBuffer = ThreadLocal.withInitial(() -> new byte[64]);
+
+    public ProductSerializer() {
+        this(0);
+    }
+
+    public ProductSerializer(int canonicalProducts) {
+        int capacity = canonicalProducts > 0 ? Integer.highestOneBit(canonicalProducts * 4 - 1) << 1 : 0;
+        this.canonicalProducts = capacity > 0 ? new AtomicReferenceArray<>(capacity) : null;
+        this.canonicalProductsMask = capacity - 1;
+    }
 
     @Override
     public void write(ObjectDataOutput out, Product product) throws IOException {
         out.writeString(product.getProductName());
-        out.writeBoolean(product.isReadyToRemove());
     }
 
     @Override
     public Product read(ObjectDataInput in) throws IOException {
-        return new Product(in.readString(), in.readBoolean());
+        if (canonicalProducts == null) return new Product(in.readString());
+        int length = in.readInt();
+        if (length < 0) return new Product(null);
+        byte[] name = nameBuffer.get();
+        if (name.length < length) {
+            name = new byte[Math.max(length, name.length * 2)];
+            nameBuffer.set(name);
+        }
+        in.readFully(name, 0, length);
+        return canonicalProduct(name, length);
     }
 
     @Override
     public int getTypeId() {
-        return 1;
+        return PRODUCT_TYPE_ID;
+    }
+
+    private Product canonicalProduct(byte[] name, int length) {
+        int index = hash(name, length) & canonicalProductsMask;
+        CanonicalProduct canonicalProduct = canonicalProducts.get(index);
+        if (canonicalProduct != null && canonicalProduct.hasName(name, length)) return canonicalProduct.product;
+        byte[] canonicalName = Arrays.copyOf(name, length);
+        Product product = new Product(new String(canonicalName, UTF_8));
+        canonicalProducts.set(index, new CanonicalProduct(canonicalName, product));
+        return product;
+    }
+
+    private static int hash(byte[] bytes, int length) {
+        int hash = 1;
+        for (int index = 0; index < length; index++) {
+            hash = 31 * hash + bytes[index];
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static final class CanonicalProduct {
+        private final byte[] name;
+        private final Product product;
+
+        private CanonicalProduct(byte[] name, Product product) {
+            this.name = name;
+            this.product = product;
+        }
+
+        private boolean hasName(byte[] bytes, int length) {
+            return Arrays.equals(name, 0, name.length, bytes, 0, length);
+        }
     }
 }
@@ -0,0 +1,28 @@
+package com.verygoodbank.tes.web.controller;
+
+import com.verygoodbank.tes.web.dto.CatalogueReloadResult;
+import com.verygoodbank.tes.web.service.cache.ProductCatalogueService;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import static org.springframework.http.ResponseEntity.ok;
+
+/**
+ * ProductCatalogueController exposes the endpoint reloading the product catalogue without a restart.
+ * Only the products that were added, changed or removed since the previous load are written to the cache.
+ */
+@RestController
+@RequestMapping("/api/v1/products")
+public class ProductCatalogueController {
+    private final ProductCatalogueService productCatalogueService;
+
+    public ProductCatalogueController(ProductCatalogueService productCatalogueService) {
+        this.productCatalogueService = productCatalogueService;
+    }
+
+    @PostMapping("/reload")
+    public ResponseEntity<CatalogueReloadResult> reloadCatalogue() {
+        return ok(productCatalogueService.reload());
+    }
+}
@@ -1,53 +1,195 @@
 package com.verygoodbank.tes.web.controller;
 
+import com.verygoodbank.tes.web.dto.TradeOutputFormat;
+import com.verygoodbank.tes.web.service.OutputFileRegistry;
 import com.verygoodbank.tes.web.service.TradeService;
-import org.springframework.core.io.InputStreamResource;
-import org.springframework.core.io.Resource;
+import com.verygoodbank.tes.web.utils.BoundedInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+import static com.verygoodbank.tes.web.dto.TradeOutputFormat.fromAcceptHeader;
+import static com.verygoodbank.tes.web.utils.AppUtils.COLUMNAR_CONTENT_TYPE;
 import static com.verygoodbank.tes.web.utils.AppUtils.CSV_CONTENT_TYPE;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.GZIP;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.compress;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.decompress;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.isGzipAccepted;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.isGzipEncoded;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.openInputStream;
+import static java.nio.file.Files.copy;
 import static java.nio.file.Files.size;
+import static java.util.UUID.randomUUID;
+import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
-import static org.springframework.http.MediaType.parseMediaType;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpHeaders.VARY;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
 import static org.springframework.http.ResponseEntity.ok;
 
+/**
+ * TradeEnrichmentController exposes the trade enrichment endpoint.
+ *
+ * <p> By default the enriched trades are streamed straight into the response body with chunked transfer
+ * encoding while the upload is being processed, so clients start receiving output immediately and
+ * nothing is written to disk.
+ * When the enrichment fails once the response has been committed, the response body is left incomplete
+ * and the connection is closed, so clients never take a truncated response for a complete one.
+ * With {@code trades.enrichment.response-mode=file} the enriched trades are written into a file first,
+ * which is streamed back once it is complete and released to {@link OutputFileRegistry} to be deleted
+ * as soon as the response body has been sent.
+ *
+ * <p> The trade file can also be posted as a raw {@code text/csv} request body, optionally with
+ * {@code Content-Encoding: gzip}, which is read straight into the enrichment pipeline instead of being
+ * buffered as a multipart upload, so memory use is bounded by the pipeline and nothing is written to disk.
+ * The reads follow the enrichment, so a slow client consumer slows the upload down.
+ * Bodies larger than {@code trades.enrichment.max-request-bytes} (after decompression) or with more than
+ * {@code trades.enrichment.max-rows} rows are rejected with {@code 413 Payload Too Large}, or, when the limit
+ * is only reached after the enriched trades have started streaming back, the response is aborted;
+ * negative limits disable them.
+ *
+ * <p> Uploaded files named {@code *.gz} or sent as {@code application/gzip} are decompressed while they are read.
+ * When the request has {@code Accept-Encoding: gzip} the enriched trades are gzip-compressed as they are written,
+ * chunk by chunk, and in the file response mode the file itself is written compressed.
+ *
+ * <p> Requests accepting {@code application/vnd.verygoodbank.trades.columnar} with a higher quality than
+ * {@code text/csv} get the enriched trades in the columnar binary format of
+ * {@link com.verygoodbank.tes.web.utils.TradeColumnarWriter} instead of CSV.
+ */
 @RestController
 @RequestMapping("/api/v1")
 public class TradeEnrichmentController {
     private final TradeService tradeService;
+    private final OutputFileRegistry outputFileRegistry;
+    private final boolean fileResponseMode;
+    private final long maxRequestBytes;
+    private final long maxRows;
 
-    public TradeEnrichmentController(TradeService tradeService) {
+    public TradeEnrichmentController(
+        TradeService tradeService,
+        OutputFileRegistry outputFileRegistry,
+        @Value("${trades.enrichment.response-mode:stream}") String responseMode,
+        @Value("${trades.enrichment.max-request-bytes:-1}") long maxRequestBytes,
+        @Value("${trades.enrichment.max-rows:-1}") long maxRows
+    ) {
         this.tradeService = tradeService;
+        this.outputFileRegistry = outputFileRegistry;
+        this.fileResponseMode = "file".equalsIgnoreCase(responseMode);
+        this.maxRequestBytes = maxRequestBytes;
+        this.maxRows = maxRows;
     }
 
-    @PostMapping(value = "/enrich", produces = CSV_CONTENT_TYPE)
-    public ResponseEntity<Resource> enrichTradeData(@RequestParam("file") MultipartFile file) {
-        File csvFile = tradeService.enrichTrades(file);
-        return getResourceEntity(csvFile);
+    @PostMapping(
+        value = "/enrich", consumes = MULTIPART_FORM_DATA_VALUE, produces = { CSV_CONTENT_TYPE, COLUMNAR_CONTENT_TYPE }
+    )
+    public ResponseEntity<StreamingResponseBody> enrichTradeData(
+        @RequestParam("file") MultipartFile file,
+        @RequestHeader(value = ACCEPT, required = false) String accept,
+        @RequestHeader(value = ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) {
+        TradeOutputFormat outputFormat = fromAcceptHeader(accept);
+        boolean gzipAccepted = isGzipAccepted(acceptEncoding);
+        if (fileResponseMode) {
+            File enrichedFile = tradeService.enrichTrades(file, outputFormat, gzipAccepted);
+            return getFileEntity(enrichedFile, outputFormat, gzipAccepted);
+        }
+        return getStreamingEntity(file, outputFormat, gzipAccepted);
+    }
+
+    @PostMapping(value = "/enrich", consumes = CSV_CONTENT_TYPE, produces = { CSV_CONTENT_TYPE, COLUMNAR_CONTENT_TYPE })
+    public ResponseEntity<StreamingResponseBody> enrichTradeBody(
+        HttpServletRequest request,
+        @RequestHeader(value = CONTENT_ENCODING, required = false) String contentEncoding,
+        @RequestHeader(value = ACCEPT, required = false) String accept,
+        @RequestHeader(value = ACCEPT_ENCODING, required = false) String acceptEncoding
+    ) throws IOException {
+        TradeOutputFormat outputFormat = fromAcceptHeader(accept);
+        boolean gzipAccepted = isGzipAccepted(acceptEncoding);
+        boolean gzipEncoded = isGzipEncoded(contentEncoding);
+        if (!gzipEncoded && maxRequestBytes >= 0 && request.getContentLengthLong() > maxRequestBytes) {
+            throw createPayloadTooLarge(maxRequestBytes + " bytes");
+        }
+        InputStream requestBody = request.getInputStream();
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream inputStream = openRequestBody(requestBody, gzipEncoded)) {
+                tradeService.enrichTrades(
+                    inputStream, gzipAccepted ? compress(outputStream) : outputStream, createRowLimit(), outputFormat
+                );
+            }
+        };
+        return ok()
+                .headers(createCorrespondHeaders("trade-" + randomUUID() + outputFormat.getFileExtension(), gzipAccepted))
+                .contentType(outputFormat.getMediaType())
+                .body(body);
     }
-    
-    private ResponseEntity<Resource> getResourceEntity(File file) {
+
+    private InputStream openRequestBody(InputStream requestBody, boolean gzipEncoded) throws IOException {
+        InputStream inputStream = new BoundedInputStream(requestBody, maxRequestBytes);
+        return gzipEncoded ? new BoundedInputStream(decompress(inputStream), maxRequestBytes) : inputStream;
+    }
+
+    private LongConsumer createRowLimit() {
+        AtomicLong rows = new AtomicLong();
+        return chunkRows -> {
+            if (maxRows >= 0 && rows.addAndGet(chunkRows) > maxRows) {
+                throw createPayloadTooLarge(maxRows + " rows");
+            }
+        };
+    }
+
+    private static ResponseStatusException createPayloadTooLarge(String limit) {
+        return new ResponseStatusException(PAYLOAD_TOO_LARGE, "The trade file exceeds the limit of " + limit);
+    }
+
+    private ResponseEntity<StreamingResponseBody> getStreamingEntity(
+        MultipartFile file, TradeOutputFormat outputFormat, boolean gzipAccepted
+    ) {
+        StreamingResponseBody body = outputStream -> {
+            try (InputStream inputStream = openInputStream(file)) {
+                tradeService.enrichTrades(
+                    inputStream, gzipAccepted ? compress(outputStream) : outputStream, processedRows -> {}, outputFormat
+                );
+            }
+        };
+        return ok()
+                .headers(createCorrespondHeaders("trade-" + randomUUID() + outputFormat.getFileExtension(), gzipAccepted))
+                .contentType(outputFormat.getMediaType())
+                .body(body);
+    }
+
+    private ResponseEntity<StreamingResponseBody> getFileEntity(
+        File file, TradeOutputFormat outputFormat, boolean gzipEncoded
+    ) {
         checkFileExistence(file);
-        HttpHeaders headers = createCorrespondHeaders(file);
+        HttpHeaders headers = createCorrespondHeaders(file.getName(), gzipEncoded);
         try {
-            FileInputStream fileInputStream = new FileInputStream(file);
-            InputStreamResource resource = new InputStreamResource(fileInputStream);
+            long contentLength = size(file.toPath());
             return ok()
                     .headers(headers)
-                    .contentLength(size(file.toPath()))
-                    .contentType(parseMediaType(CSV_CONTENT_TYPE))
-                    .body(resource);
-        } catch (FileNotFoundException exception) {
-            throw new RuntimeException("File with the translated trades not found: " + file.getName(), exception);
+                    .contentLength(contentLength)
+                    .contentType(outputFormat.getMediaType())
+                    .body(outputStream -> {
+                        try {
+                            copy(file.toPath(), outputStream);
+                        } finally {
+                            outputFileRegistry.release(file.toPath());
+                        }
+                    });
         } catch (IOException exception) {
             throw new RuntimeException("An error occurred during creating csv input stream", exception);
         }
@@ -62,9 +204,12 @@ public class TradeEnrichmentController {
         }
     }
 
-    private HttpHeaders createCorrespondHeaders(File file) {
+    private HttpHeaders createCorrespondHeaders(String fileName, boolean gzipEncoded) {
         HttpHeaders headers = new HttpHeaders();
-        headers.add(CONTENT_DISPOSITION, "attachment; filename=\"" + file.getName() + "\"");
+        headers.add(CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"");
+        headers.add(VARY, ACCEPT);
+        headers.add(VARY, ACCEPT_ENCODING);
+        if (gzipEncoded) headers.add(CONTENT_ENCODING, GZIP);
         return headers;
     }
 }
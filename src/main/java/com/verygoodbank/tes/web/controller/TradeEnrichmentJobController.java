@@ -0,0 +1,76 @@
+package com.verygoodbank.tes.web.controller;
+
+import com.verygoodbank.tes.web.dto.EnrichmentJob;
+import com.verygoodbank.tes.web.service.TradeEnrichmentJobService;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import static com.verygoodbank.tes.web.utils.AppUtils.CSV_CONTENT_TYPE;
+import static java.nio.file.Files.copy;
+import static java.nio.file.Files.size;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.MediaType.parseMediaType;
+import static org.springframework.http.ResponseEntity.accepted;
+import static org.springframework.http.ResponseEntity.ok;
+
+/**
+ * TradeEnrichmentJobController exposes the asynchronous trade enrichment endpoints.
+ *
+ * <p> A trade file posted to {@code /api/v1/enrich/jobs} is accepted with the id of the enrichment job,
+ * whose status and progress are reported by {@code /api/v1/enrich/jobs/{jobId}}.
+ * Once the job is completed, the enriched trades are streamed by {@code /api/v1/enrich/jobs/{jobId}/result}.
+ */
+@RestController
+@RequestMapping("/api/v1/enrich/jobs")
+public class TradeEnrichmentJobController {
+    private final TradeEnrichmentJobService tradeEnrichmentJobService;
+
+    public TradeEnrichmentJobController(TradeEnrichmentJobService tradeEnrichmentJobService) {
+        this.tradeEnrichmentJobService = tradeEnrichmentJobService;
+    }
+
+    @PostMapping
+    public ResponseEntity<EnrichmentJob> submitEnrichmentJob(@RequestParam("file") MultipartFile file) {
+        EnrichmentJob job = tradeEnrichmentJobService.submit(file);
+        return accepted()
+                .location(URI.create("/api/v1/enrich/jobs/" + job.getId()))
+                .body(job);
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<EnrichmentJob> getEnrichmentJob(@PathVariable String jobId) {
+        return ok(tradeEnrichmentJobService.getJob(jobId));
+    }
+
+    @GetMapping(value = "/{jobId}/result", produces = CSV_CONTENT_TYPE)
+    public ResponseEntity<StreamingResponseBody> getEnrichmentJobResult(@PathVariable String jobId) {
+        EnrichmentJob job = tradeEnrichmentJobService.getJob(jobId);
+        if (job.getStatus() != EnrichmentJob.Status.COMPLETED) {
+            throw new ResponseStatusException(CONFLICT, "Enrichment job " + jobId + " is " + job.getStatus());
+        }
+        Path outputFile = job.getOutputFile();
+        HttpHeaders headers = new HttpHeaders();
+        headers.add(CONTENT_DISPOSITION, "attachment; filename=\"" + outputFile.getFileName() + "\"");
+        try {
+            return ok()
+                    .headers(headers)
+                    .contentLength(size(outputFile))
+                    .contentType(parseMediaType(CSV_CONTENT_TYPE))
+                    .body(outputStream -> copy(outputFile, outputStream));
+        } catch (IOException exception) {
+            throw new RuntimeException("An error occurred during reading the result of enrichment job " + jobId, exception);
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.verygoodbank.tes.web.dto;
+
+/**
+ * CatalogueReloadResult summarizes a reload of the product catalogue: the number of products that
+ * were added, updated, removed or left unchanged in the cache, and how long the reload took.
+ */
+public class CatalogueReloadResult {
+    private final int added;
+    private final int updated;
+    private final int removed;
+    private final int unchanged;
+    private final long durationMillis;
+
+    public CatalogueReloadResult(int added, int updated, int removed, int unchanged, long durationMillis) {
+        this.added = added;
+        this.updated = updated;
+        this.removed = removed;
+        this.unchanged = unchanged;
+        this.durationMillis = durationMillis;
+    }
+
+    public int getAdded() {
+        return added;
+    }
+
+    public int getUpdated() {
+        return updated;
+    }
+
+    public int getRemoved() {
+        return removed;
+    }
+
+    public int getUnchanged() {
+        return unchanged;
+    }
+
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    @Override
+    public String toString() {
+        return "added " + added + ", updated " + updated + ", removed " + removed + ", unchanged " + unchanged +
+            " in " + durationMillis + " ms";
+    }
+}
@@ -0,0 +1,67 @@
+package com.verygoodbank.tes.web.dto;
+
+import java.util.Arrays;
+
+/**
+ * DiscardedTrades aggregates the trades of a request that were discarded because of an invalid date
+ * or enriched without a product name, so that they can be reported with a single log message.
+ * Only the first {@code maxSampleIds} product ids of each kind are kept.
+ *
+ * <p> A chunk is collected into its own instance and then merged into the instance of the request
+ * with {@link #merge(DiscardedTrades)} by the thread writing the chunks, in the order of the input,
+ * so the class is not thread-safe.
+ */
+public class DiscardedTrades {
+    private final int maxSampleIds;
+    private final long[] invalidDateIds;
+    private final long[] missingProductIds;
+    private int invalidDates;
+    private int missingProducts;
+
+    public DiscardedTrades(int maxSampleIds) {
+        this.maxSampleIds = maxSampleIds;
+        this.invalidDateIds = new long[maxSampleIds];
+        this.missingProductIds = new long[maxSampleIds];
+    }
+
+    public void addInvalidDate(long productId) {
+        if (invalidDates < maxSampleIds) invalidDateIds[invalidDates] = productId;
+        invalidDates++;
+    }
+
+    public void addMissingProduct(long productId) {
+        if (missingProducts < maxSampleIds) missingProductIds[missingProducts] = productId;
+        missingProducts++;
+    }
+
+    public void merge(DiscardedTrades chunk) {
+        for (int index = 0; index < Math.min(chunk.invalidDates, maxSampleIds); index++) {
+            addInvalidDate(chunk.invalidDateIds[index]);
+        }
+        invalidDates += chunk.invalidDates - Math.min(chunk.invalidDates, maxSampleIds);
+        for (int index = 0; index < Math.min(chunk.missingProducts, maxSampleIds); index++) {
+            addMissingProduct(chunk.missingProductIds[index]);
+        }
+        missingProducts += chunk.missingProducts - Math.min(chunk.missingProducts, maxSampleIds);
+    }
+
+    public synchronized int getInvalidDates() {
+        return invalidDates;
+    }
+
+    public synchronized int getMissingProducts() {
+        return missingProducts;
+    }
+
+    public synchronized boolean isEmpty() {
+        return invalidDates == 0 && missingProducts == 0;
+    }
+
+    public synchronized long[] getInvalidDateIds() {
+        return Arrays.copyOf(invalidDateIds, Math.min(invalidDates, maxSampleIds));
+    }
+
+    public synchronized long[] getMissingProductIds() {
+        return Arrays.copyOf(missingProductIds, Math.min(missingProducts, maxSampleIds));
+    }
+}
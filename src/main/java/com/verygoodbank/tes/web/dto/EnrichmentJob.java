@@ -0,0 +1,112 @@
+package com.verygoodbank.tes.web.dto;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+import static java.lang.System.nanoTime;
+
+/**
+ * EnrichmentJob describes a trade file submitted for asynchronous enrichment, together with
+ * its progress: the status, the number of rows processed so far and the processing rate.
+ * The uploaded and the enriched files of the job are kept on disk and are not exposed to clients,
+ * the uploaded file as it was received, so a gzip-compressed upload stays compressed until the job reads it.
+ */
+public class EnrichmentJob {
+    private final String id;
+    private final Path inputFile;
+    private final Path outputFile;
+    private final boolean compressedInput;
+    private final Instant submittedAt = Instant.now();
+    private final AtomicLong processedRows = new AtomicLong();
+    private volatile Status status = Status.QUEUED;
+    private volatile long startedNanos;
+    private volatile long finishedNanos;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    public EnrichmentJob(String id, Path inputFile, Path outputFile, boolean compressedInput) {
+        this.id = id;
+        this.inputFile = inputFile;
+        this.outputFile = outputFile;
+        this.compressedInput = compressedInput;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public Instant getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public Instant getFinishedAt() {
+        return finishedAt;
+    }
+
+    public long getProcessedRows() {
+        return processedRows.get();
+    }
+
+    public long getRowsPerSecond() {
+        if (status == Status.QUEUED) return 0;
+        long elapsedNanos = (status == Status.RUNNING ? nanoTime() : finishedNanos) - startedNanos;
+        return elapsedNanos > 0 ? processedRows.get() * 1_000_000_000L / elapsedNanos : 0;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    @JsonIgnore
+    public Path getInputFile() {
+        return inputFile;
+    }
+
+    @JsonIgnore
+    public Path getOutputFile() {
+        return outputFile;
+    }
+
+    @JsonIgnore
+    public boolean isCompressedInput() {
+        return compressedInput;
+    }
+
+    @JsonIgnore
+    public boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+
+    public void addProcessedRows(long rows) {
+        processedRows.addAndGet(rows);
+    }
+
+    public void start() {
+        startedNanos = nanoTime();
+        status = Status.RUNNING;
+    }
+
+    public void complete() {
+        finish(Status.COMPLETED);
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finish(Status.FAILED);
+    }
+
+    private void finish(Status status) {
+        finishedNanos = nanoTime();
+        finishedAt = Instant.now();
+        this.status = status;
+    }
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+}
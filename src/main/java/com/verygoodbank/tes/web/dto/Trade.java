@@ -21,10 +21,25 @@ public class Trade {
         this.price = price;
     }
 
+    public String getDate() {
+        return date;
+    }
+
     public long getProductId() {
         return productId;
     }
 
+    public String getCurrency() {
+        return currency;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public String getProductName() {
+        return productName;
+    }
 
     public void setProductName(String productName) {
         this.productName = productName;
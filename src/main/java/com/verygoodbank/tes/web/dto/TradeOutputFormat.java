@@ -0,0 +1,51 @@
+package com.verygoodbank.tes.web.dto;
+
+import org.springframework.http.MediaType;
+import java.util.List;
+import static com.verygoodbank.tes.web.utils.AppUtils.COLUMNAR_CONTENT_TYPE;
+import static com.verygoodbank.tes.web.utils.AppUtils.CSV_CONTENT_TYPE;
+
+/**
+ * TradeOutputFormat lists the formats the enriched trades can be written in: CSV, which is the default,
+ * and the columnar binary format of {@link com.verygoodbank.tes.web.utils.TradeColumnarWriter}.
+ */
+public enum TradeOutputFormat {
+    CSV(CSV_CONTENT_TYPE, ".csv"),
+    COLUMNAR(COLUMNAR_CONTENT_TYPE, ".trades");
+
+    private final MediaType mediaType;
+    private final String fileExtension;
+
+    TradeOutputFormat(String contentType, String fileExtension) {
+        this.mediaType = MediaType.parseMediaType(contentType);
+        this.fileExtension = fileExtension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileExtension() {
+        return fileExtension;
+    }
+
+    /**
+     * Returns the format whose media type is listed in the {@code Accept} header with the highest quality,
+     * the first listed one among equal qualities, or CSV when neither is listed explicitly.
+     */
+    public static TradeOutputFormat fromAcceptHeader(String accept) {
+        if (accept == null || accept.isBlank()) return CSV;
+        TradeOutputFormat acceptedFormat = CSV;
+        double acceptedQuality = 0;
+        List<MediaType> mediaTypes = MediaType.parseMediaTypes(accept);
+        for (MediaType mediaType : mediaTypes) {
+            for (TradeOutputFormat format : values()) {
+                if (format.mediaType.equalsTypeAndSubtype(mediaType) && mediaType.getQualityValue() > acceptedQuality) {
+                    acceptedFormat = format;
+                    acceptedQuality = mediaType.getQualityValue();
+                }
+            }
+        }
+        return acceptedFormat;
+    }
+}
@@ -0,0 +1,36 @@
+package com.verygoodbank.tes.web.dto;
+
+/**
+ * TradeRow is a mutable holder for the values of a single trade record of the input file.
+ * A single instance is reused for every record read by {@link com.verygoodbank.tes.web.utils.TradeCsvTokenizer},
+ * so that tokenizing does not allocate an object per record.
+ */
+public class TradeRow {
+    private String date;
+    private long productId;
+    private String currency;
+    private double price;
+
+    public String getDate() {
+        return date;
+    }
+
+    public long getProductId() {
+        return productId;
+    }
+
+    public String getCurrency() {
+        return currency;
+    }
+
+    public double getPrice() {
+        return price;
+    }
+
+    public void set(String date, long productId, String currency, double price) {
+        this.date = date;
+        this.productId = productId;
+        this.currency = currency;
+        this.price = price;
+    }
+}
@@ -0,0 +1,33 @@
+package com.verygoodbank.tes.web.health;
+
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * ProductCacheHealthIndicator reports the {@code productCache} health component, which is out of service
+ * until {@link ProductCacheWarmUp} has loaded the product catalogue into the cache.
+ * It is part of the readiness health group, so {@code /actuator/health/readiness} only reports
+ * the application as ready once the product data is warm.
+ */
+@Component
+public class ProductCacheHealthIndicator implements HealthIndicator {
+    private final ProductCacheWarmUp productCacheWarmUp;
+
+    public ProductCacheHealthIndicator(ProductCacheWarmUp productCacheWarmUp) {
+        this.productCacheWarmUp = productCacheWarmUp;
+    }
+
+    @Override
+    public Health health() {
+        if (!productCacheWarmUp.isReady()) {
+            return Health.outOfService()
+                .withDetail("warmUp", "in progress")
+                .build();
+        }
+        return Health.up()
+            .withDetail("catalogue", productCacheWarmUp.getWarmUp().join())
+            .build();
+    }
+}
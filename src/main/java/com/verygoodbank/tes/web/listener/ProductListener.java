@@ -1,124 +1,103 @@
 package com.verygoodbank.tes.web.listener;
 
-import com.hazelcast.map.QueryResultSizeExceededException;
-import com.hazelcast.map.ReachedMaxSizeException;
-import com.verygoodbank.tes.web.dto.cache.Product;
-import com.verygoodbank.tes.web.service.cache.ProductCacheService;
-import org.apache.commons.csv.CSVRecord;
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import com.verygoodbank.tes.web.service.cache.ProductCatalogueService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.event.EventListener;
+import org.springframework.core.io.Resource;
 import org.springframework.stereotype.Component;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.util.ConcurrentModificationException;
-import java.util.Iterator;
-import java.util.Map.Entry;
-import static com.verygoodbank.tes.web.utils.CSVUtils.PRODUCT_HEADERS;
-import static com.verygoodbank.tes.web.utils.CSVUtils.readCsv;
-import static java.lang.Long.parseLong;
-import static org.springframework.util.ResourceUtils.getFile;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
 
 /**
- * ProductListener is responsible for initializing and maintaining the product cache.
- * It listens to application context events and performs cache refresh and cleanup operations.
- * This class is tightly coupled with the {@link ProductCacheService} for cache operations.
+ * ProductListener is responsible for maintaining the product cache.
+ * It listens to application context events and performs cache refresh operations.
+ * This class is tightly coupled with the {@link ProductCatalogueService} for catalogue loading.
  *
- * <p> The {@link #refreshProductCache()} method, triggered by the {@link ContextRefreshedEvent},
- * before the app is started, loads product data from a CSV file and populates the cache.
- * It also starts a background process for clearing products that are marked as ready to remove.
- * This method ensures that the product
- * cache is up-to-date and consistent with the source data upon application startup or context refresh.
+ * <p> The product catalogue is loaded into the cache on startup by {@link ProductCacheWarmUp},
+ * which also removes the products left in the cache by an older catalogue.
+ *
+ * <p> When {@code products.catalogue.watch} is enabled and the catalogue is a file, the
+ * {@link #watchProductCatalogue()} method, triggered by the {@link ContextRefreshedEvent}, starts watching
+ * the file once the warm-up has completed, and the catalogue is reloaded whenever the file is modified.
  */
 @Component
 public class ProductListener {
-    private final ProductCacheService productCacheService;
-    private final Object cacheLock = new Object();
+    private static final Logger log = LoggerFactory.getLogger(ProductListener.class);
+    private final ProductCatalogueService productCatalogueService;
+    private final ProductCacheWarmUp productCacheWarmUp;
+    private final boolean watchCatalogue;
+    private final AtomicBoolean watchStarted = new AtomicBoolean();
 
-    public ProductListener(ProductCacheService productCacheService) {
-        this.productCacheService = productCacheService;
+    public ProductListener(
+        ProductCatalogueService productCatalogueService,
+        ProductCacheWarmUp productCacheWarmUp,
+        @Value("${products.catalogue.watch:false}") boolean watchCatalogue
+    ) {
+        this.productCatalogueService = productCatalogueService;
+        this.productCacheWarmUp = productCacheWarmUp;
+        this.watchCatalogue = watchCatalogue;
     }
 
     @EventListener(ContextRefreshedEvent.class)
-    private void refreshProductCache() {
-        try {
-            putProductsIntoCache(getCsvRecords());
-            System.out.println("Put products from static resource into the cache.");
-            runBackgroundClear();
-        } catch (FileNotFoundException exception) {
-            throw new RuntimeException("There is no product file in resources: ", exception);
+    private void watchProductCatalogue() {
+        if (watchCatalogue && watchStarted.compareAndSet(false, true)) {
+            productCacheWarmUp.getWarmUp()
+                .thenRun(this::runCatalogueWatch);
         }
     }
 
-    private Iterable<CSVRecord> getCsvRecords() throws FileNotFoundException {
-        File resourceFile = getFile("classpath:product.csv");
-        InputStream inputStream = new FileInputStream(resourceFile);
-        return readCsv(inputStream, PRODUCT_HEADERS);
-    }
-
-    private void putProductsIntoCache(Iterable<CSVRecord> csvRecords) {
-        for (CSVRecord csvRecord : csvRecords) {
-            productCacheService.put(
-                parseLong(csvRecord.get("product_id")),
-                new Product(csvRecord.get("product_name"), false)
-            );
+    private void runCatalogueWatch() {
+        Resource catalogue = productCatalogueService.getCatalogueResource();
+        if (!catalogue.isFile()) {
+            log.warn("The product catalogue {} is not a file and can not be watched.", catalogue.getDescription());
+            return;
         }
-    }
-
-    private void runBackgroundClear() {
-        new Thread(this::clearNotExistProducts)
-            .start();
-    }
-
-    private void clearNotExistProducts() {
         try {
-            System.out.println("Start ready-to-delete products clear process.");
-            Iterator<Entry<Long, Product>> cacheMapIterator = productCacheService.getKeySet();
-            while (cacheMapIterator.hasNext()) {
-                Entry<Long, Product> cacheEntry = cacheMapIterator.next();
-                processProduct(cacheEntry.getKey(), cacheEntry.getValue());
-            }
-            System.out.println("Ready-to-delete products clear process has just finished.");
-        } catch (ConcurrentModificationException exception) {
-            System.err.println(
-                "A concurrent modification detected: " + exception
-            );
-        } catch (QueryResultSizeExceededException | IllegalStateException exception) {
-            System.err.println(
-                "An error occurred during retrieving a set of keys and values: " + exception
-            );
-        } catch (Exception exception) {
-            System.err.println(
-                "An error occurred during clear process: " + exception
-            );
+            Path catalogueFile = catalogue.getFile()
+                .toPath()
+                .toAbsolutePath();
+            Thread watchThread = new Thread(() -> watchCatalogue(catalogueFile), "product-catalogue-watch");
+            watchThread.setDaemon(true);
+            watchThread.start();
+        } catch (IOException exception) {
+            log.error("An error occurred during resolving the product catalogue file", exception);
         }
     }
 
-    private void processProduct(Long productId, Product product) {
-        if (isProductNull(productId, product)) return;
-        synchronized(cacheLock) {
-            try {
-                if (product.isReadyToRemove()) {
-                    System.out.println("The product with id " + productId + " was evicted.");
-                    productCacheService.evict(productId);
-                } else {
-                    product.setReadyToRemove(true);
-                    productCacheService.put(productId, product);
-                }
-            } catch (ReachedMaxSizeException exception) {
-                System.err.println("An error occurred during putting updated map entry into the cache: " + exception);
-            } catch (Exception exception) {
-                System.err.println("An error occurred during modifying the cache map: " + exception);
+    private void watchCatalogue(Path catalogueFile) {
+        try (WatchService watchService = catalogueFile.getFileSystem().newWatchService()) {
+            catalogueFile.getParent()
+                .register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+            log.info("Watching the product catalogue {} for changes.", catalogueFile);
+            while (true) {
+                WatchKey watchKey = watchService.take();
+                boolean catalogueChanged = watchKey.pollEvents()
+                    .stream()
+                    .anyMatch(event -> catalogueFile.getFileName().equals(event.context()));
+                watchKey.reset();
+                if (catalogueChanged) reloadCatalogue();
             }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+        } catch (IOException exception) {
+            log.error("An error occurred during watching the product catalogue", exception);
         }
     }
 
-    private boolean isProductNull(Long productId, Product product) {
-        if (product == null) {
-            System.err.println("Product with id " + productId + " is null.");
-            return true;
+    private void reloadCatalogue() {
+        try {
+            log.info("The product catalogue was reloaded after a change: {}.", productCatalogueService.reload());
+        } catch (RuntimeException exception) {
+            log.error("An error occurred during reloading the product catalogue", exception);
         }
-        return false;
     }
 }
@@ -0,0 +1,61 @@
+package com.verygoodbank.tes.web.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * ProductCacheMetrics holds the meters of product lookups, exposed through the actuator {@code metrics} endpoint:
+ * {@code products.cache.lookups} counts looked up product ids by {@code result}, {@code hit}, {@code miss},
+ * or {@code negative} for misses answered by the negative lookup cache without a store lookup,
+ * and {@code products.cache.latency} is a latency histogram of batched lookups.
+ *
+ * <p> Single lookups are only counted, not timed, as they are served in-process on the per-row path,
+ * where they are counted per chunk with {@link #recordLookups(int, int)}.
+ */
+@Component
+public class ProductCacheMetrics {
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter negativeLookups;
+    private final Timer batchLatency;
+
+    public ProductCacheMetrics(MeterRegistry meterRegistry) {
+        this.hits = lookupCounter(meterRegistry, "hit");
+        this.misses = lookupCounter(meterRegistry, "miss");
+        this.negativeLookups = lookupCounter(meterRegistry, "negative");
+        this.batchLatency = Timer.builder("products.cache.latency")
+            .description("Time spent on a batched product lookup")
+            .tag("operation", "getAll")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    public void recordLookup(boolean hit) {
+        (hit ? hits : misses).increment();
+    }
+
+    public void recordLookups(int requested, int found) {
+        hits.increment(found);
+        misses.increment(requested - found);
+    }
+
+    public void recordNegativeLookups(int count) {
+        negativeLookups.increment(count);
+    }
+
+    public void recordBatchLookup(int requested, int found, long latencyNanos) {
+        hits.increment(found);
+        misses.increment(requested - found);
+        batchLatency.record(latencyNanos, NANOSECONDS);
+    }
+
+    private static Counter lookupCounter(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("products.cache.lookups")
+            .description("Product ids looked up in the product cache")
+            .tag("result", result)
+            .register(meterRegistry);
+    }
+}
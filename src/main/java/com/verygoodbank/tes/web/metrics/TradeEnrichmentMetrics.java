@@ -0,0 +1,91 @@
+package com.verygoodbank.tes.web.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * TradeEnrichmentMetrics holds the meters of the trade enrichment pipeline, exposed through
+ * the actuator {@code metrics} endpoint:
+ * <ul>
+ *     <li>{@code trades.enrichment.rows} counts rows by {@code outcome}: {@code enriched},
+ *     {@code invalid_date} and {@code missing_product}, the latter also being enriched;</li>
+ *     <li>{@code trades.enrichment.stage} is a latency histogram of every chunk by {@code stage}:
+ *     {@code parse} (tokenizing and date validation), {@code lookup}, {@code format} and {@code write};</li>
+ *     <li>{@code trades.enrichment.request.bytes} records bytes per request by {@code direction}:
+ *     {@code in} and {@code out}.</li>
+ * </ul>
+ *
+ * <p> The meters are registered once and recorded per chunk or per request rather than per row,
+ * so keeping them enabled does not slow down the enrichment.
+ */
+@Component
+public class TradeEnrichmentMetrics {
+    private final Counter enrichedRows;
+    private final Counter invalidDateRows;
+    private final Counter missingProductRows;
+    private final Timer parseStage;
+    private final Timer lookupStage;
+    private final Timer formatStage;
+    private final Timer writeStage;
+    private final DistributionSummary bytesIn;
+    private final DistributionSummary bytesOut;
+
+    public TradeEnrichmentMetrics(MeterRegistry meterRegistry) {
+        this.enrichedRows = rowCounter(meterRegistry, "enriched");
+        this.invalidDateRows = rowCounter(meterRegistry, "invalid_date");
+        this.missingProductRows = rowCounter(meterRegistry, "missing_product");
+        this.parseStage = stageTimer(meterRegistry, "parse");
+        this.lookupStage = stageTimer(meterRegistry, "lookup");
+        this.formatStage = stageTimer(meterRegistry, "format");
+        this.writeStage = stageTimer(meterRegistry, "write");
+        this.bytesIn = requestBytes(meterRegistry, "in");
+        this.bytesOut = requestBytes(meterRegistry, "out");
+    }
+
+    public void recordChunk(
+        int enriched, int invalidDate, int missingProduct, long parseNanos, long lookupNanos, long formatNanos
+    ) {
+        enrichedRows.increment(enriched);
+        invalidDateRows.increment(invalidDate);
+        missingProductRows.increment(missingProduct);
+        parseStage.record(parseNanos, NANOSECONDS);
+        lookupStage.record(lookupNanos, NANOSECONDS);
+        formatStage.record(formatNanos, NANOSECONDS);
+    }
+
+    public void recordWrite(long writeNanos) {
+        writeStage.record(writeNanos, NANOSECONDS);
+    }
+
+    public void recordRequest(long requestBytesIn, long requestBytesOut) {
+        bytesIn.record(requestBytesIn);
+        bytesOut.record(requestBytesOut);
+    }
+
+    private static Counter rowCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("trades.enrichment.rows")
+            .description("Trade rows processed by the enrichment")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+
+    private static Timer stageTimer(MeterRegistry meterRegistry, String stage) {
+        return Timer.builder("trades.enrichment.stage")
+            .description("Time spent per chunk in an enrichment stage")
+            .tag("stage", stage)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+    }
+
+    private static DistributionSummary requestBytes(MeterRegistry meterRegistry, String direction) {
+        return DistributionSummary.builder("trades.enrichment.request.bytes")
+            .description("Bytes read or written per enrichment request")
+            .baseUnit("bytes")
+            .tag("direction", direction)
+            .register(meterRegistry);
+    }
+}
@@ -0,0 +1,113 @@
+package com.verygoodbank.tes.web.service;
+
+import com.verygoodbank.tes.web.utils.AppUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.stream.Stream;
+import static com.verygoodbank.tes.web.utils.AppUtils.deleteFile;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.list;
+import static java.nio.file.Paths.get;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.MINUTES;
+
+/**
+ * OutputFileRegistry keeps track of the files with enriched trades written in the file response mode.
+ *
+ * <p> Files are registered in {@code trades.enrichment.output-directory} when they are created, and each of them
+ * is deleted either as soon as it is released, i.e. once its response body has been sent, or when it has been
+ * registered for {@code trades.enrichment.output-ttl-minutes}, whichever comes first.
+ * The expirations are kept in the delay queue of a single scheduler thread and are cancelled on release,
+ * so no file is deleted by scanning a directory.
+ * The directory is only listed once, on startup, to delete the expired files left by a previous run.
+ */
+@Service
+public class OutputFileRegistry {
+    private static final Logger log = LoggerFactory.getLogger(OutputFileRegistry.class);
+
+    private final Path outputDirectory;
+    private final long timeToLiveMillis;
+    private final Map<Path, ScheduledFuture<?>> files = new ConcurrentHashMap<>();
+    private final ScheduledThreadPoolExecutor expiryExecutor;
+
+    public OutputFileRegistry(
+        @Value("${trades.enrichment.output-directory:${java.io.tmpdir}/trade-enrichment-output}") String outputDirectory,
+        @Value("${trades.enrichment.output-ttl-minutes:60}") long timeToLiveMinutes
+    ) {
+        this.outputDirectory = get(outputDirectory);
+        this.timeToLiveMillis = MINUTES.toMillis(timeToLiveMinutes);
+        this.expiryExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "output-file-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.expiryExecutor.setRemoveOnCancelPolicy(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            createDirectories(outputDirectory);
+        } catch (IOException exception) {
+            throw new RuntimeException("An error occurred during creating output directory " + outputDirectory, exception);
+        }
+        try (Stream<Path> leftoverFiles = list(outputDirectory)) {
+            leftoverFiles.filter(this::isExpired)
+                .forEach(AppUtils::deleteFile);
+        } catch (IOException exception) {
+            log.error("An error occurred during deleting expired output files: {}", exception.getMessage());
+        }
+    }
+
+    public Path register(String fileName) {
+        Path file = outputDirectory.resolve(fileName);
+        files.computeIfAbsent(file, key -> expiryExecutor.schedule(() -> expire(key), timeToLiveMillis, MILLISECONDS));
+        return file;
+    }
+
+    public void release(Path file) {
+        ScheduledFuture<?> expiry = files.remove(file);
+        if (expiry != null) expiry.cancel(false);
+        deleteFile(file);
+    }
+
+    public boolean isRegistered(Path file) {
+        return files.containsKey(file);
+    }
+
+    public int getRegisteredFiles() {
+        return files.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        expiryExecutor.shutdownNow();
+        files.keySet().forEach(this::release);
+    }
+
+    private void expire(Path file) {
+        if (files.remove(file) == null) return;
+        log.debug("Output file {} has expired before it was released", file.getFileName());
+        deleteFile(file);
+    }
+
+    private boolean isExpired(Path file) {
+        try {
+            return getLastModifiedTime(file).toMillis() < currentTimeMillis() - timeToLiveMillis;
+        } catch (IOException exception) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.verygoodbank.tes.web.service;
+
+import com.verygoodbank.tes.web.dto.EnrichmentJob;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.isGzipFile;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.openInputStream;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.deleteIfExists;
+import static java.nio.file.Files.newOutputStream;
+import static java.util.UUID.randomUUID;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+/**
+ * TradeEnrichmentJobService enriches trade files asynchronously, so that a large upload does not hold
+ * a request thread and the connection until the enrichment is finished.
+ *
+ * <p> A submitted file is stored in {@code trades.jobs.directory} and enriched by the job executor,
+ * which runs at most {@code trades.jobs.concurrency} jobs at once and queues at most
+ * {@code trades.jobs.queue-capacity} more.
+ * Submissions beyond that are rejected with {@code 503 Service Unavailable} before the upload is stored.
+ * Uploads named {@code *.gz} or sent as {@code application/gzip} are stored compressed and decompressed
+ * while the job reads them, as by the synchronous endpoint.
+ * Every job still uses the shared trade enrichment worker pool of {@link TradeService}.
+ *
+ * <p> Finished jobs and their enriched files are removed {@code trades.jobs.retention-minutes} after they finished.
+ */
+@Service
+public class TradeEnrichmentJobService {
+    private static final Logger log = LoggerFactory.getLogger(TradeEnrichmentJobService.class);
+
+    private final TradeService tradeService;
+    private final Path jobDirectory;
+    private final Duration retention;
+    private final ThreadPoolExecutor jobExecutor;
+    private final Map<String, EnrichmentJob> jobs = new ConcurrentHashMap<>();
+
+    public TradeEnrichmentJobService(
+        TradeService tradeService,
+        @Value("${trades.jobs.concurrency:2}") int concurrency,
+        @Value("${trades.jobs.queue-capacity:16}") int queueCapacity,
+        @Value("${trades.jobs.directory:${java.io.tmpdir}/trade-enrichment-jobs}") Path jobDirectory,
+        @Value("${trades.jobs.retention-minutes:60}") long retentionMinutes
+    ) {
+        this.tradeService = tradeService;
+        this.jobDirectory = jobDirectory;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.jobExecutor = createJobExecutor(concurrency, queueCapacity);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        jobExecutor.shutdownNow();
+    }
+
+    public EnrichmentJob submit(MultipartFile file) {
+        checkCapacity();
+        String jobId = randomUUID().toString();
+        boolean compressedInput = isGzipFile(file);
+        EnrichmentJob job = new EnrichmentJob(
+            jobId,
+            jobDirectory.resolve(jobId + (compressedInput ? "-input.csv.gz" : "-input.csv")),
+            jobDirectory.resolve("trade-" + jobId + ".csv"),
+            compressedInput
+        );
+        try {
+            createDirectories(jobDirectory);
+            file.transferTo(job.getInputFile());
+        } catch (IOException exception) {
+            throw new RuntimeException("An error occurred during storing the file of the enrichment job ", exception);
+        }
+        jobs.put(jobId, job);
+        try {
+            jobExecutor.execute(() -> runJob(job));
+        } catch (RejectedExecutionException exception) {
+            jobs.remove(jobId);
+            deleteJobFile(job.getInputFile());
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Too many enrichment jobs, try again later");
+        }
+        return job;
+    }
+
+    public EnrichmentJob getJob(String jobId) {
+        EnrichmentJob job = jobs.get(jobId);
+        if (job == null) throw new ResponseStatusException(NOT_FOUND, "There is no enrichment job with id " + jobId);
+        return job;
+    }
+
+    @Scheduled(fixedDelayString = "${trades.jobs.cleanup-interval-ms:60000}")
+    public void removeExpiredJobs() {
+        Instant expiredBefore = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> {
+            if (!job.isFinished() || job.getFinishedAt().isAfter(expiredBefore)) return false;
+            deleteJobFile(job.getOutputFile());
+            return true;
+        });
+    }
+
+    private void checkCapacity() {
+        if (jobExecutor.getActiveCount() >= jobExecutor.getMaximumPoolSize()
+            && jobExecutor.getQueue().remainingCapacity() == 0) {
+            throw new ResponseStatusException(SERVICE_UNAVAILABLE, "Too many enrichment jobs, try again later");
+        }
+    }
+
+    private void runJob(EnrichmentJob job) {
+        job.start();
+        try (InputStream inputStream = openInputStream(job.getInputFile(), job.isCompressedInput());
+             OutputStream outputStream = newOutputStream(job.getOutputFile())) {
+            tradeService.enrichTrades(inputStream, outputStream, job::addProcessedRows);
+            job.complete();
+            log.info("Enrichment job {} has finished, {} rows processed.", job.getId(), job.getProcessedRows());
+        } catch (IOException | RuntimeException exception) {
+            log.error("An error occurred during enrichment job {}", job.getId(), exception);
+            job.fail(exception.getMessage());
+            deleteJobFile(job.getOutputFile());
+        } finally {
+            deleteJobFile(job.getInputFile());
+        }
+    }
+
+    private void deleteJobFile(Path file) {
+        try {
+            deleteIfExists(file);
+        } catch (IOException exception) {
+            log.error("An error occurred during deleting enrichment job file {}: {}", file, exception.getMessage());
+        }
+    }
+
+    private ThreadPoolExecutor createJobExecutor(int concurrency, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(
+            concurrency, concurrency, 0, MILLISECONDS, new ArrayBlockingQueue<>(queueCapacity),
+            runnable -> {
+                Thread thread = new Thread(runnable, "trade-enrichment-job-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        );
+    }
+}
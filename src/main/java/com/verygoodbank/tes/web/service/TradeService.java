@@ -1,24 +1,59 @@
 package com.verygoodbank.tes.web.service;
 
+import com.verygoodbank.tes.web.dto.DiscardedTrades;
 import com.verygoodbank.tes.web.dto.Trade;
+import com.verygoodbank.tes.web.dto.TradeOutputFormat;
+import com.verygoodbank.tes.web.dto.TradeRow;
 import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.metrics.TradeEnrichmentMetrics;
 import com.verygoodbank.tes.web.service.cache.ProductCacheService;
-import com.verygoodbank.tes.web.validation.DateFormatValidator;
-import org.apache.commons.csv.CSVPrinter;
-import org.apache.commons.csv.CSVRecord;
+import com.verygoodbank.tes.web.utils.CountingInputStream;
+import com.verygoodbank.tes.web.utils.CountingOutputStream;
+import com.verygoodbank.tes.web.utils.CsvChunkReader;
+import com.verygoodbank.tes.web.utils.RateLimitedLogger;
+import com.verygoodbank.tes.web.utils.TradeColumnarWriter;
+import com.verygoodbank.tes.web.utils.TradeCsvTokenizer;
+import com.verygoodbank.tes.web.utils.TradeCsvWriter;
+import com.verygoodbank.tes.web.validation.BasicIsoDateValidator;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import static com.verygoodbank.tes.web.utils.AppUtils.COMMA;
-import static com.verygoodbank.tes.web.utils.CSVUtils.*;
-import static java.lang.Double.parseDouble;
-import static java.lang.Long.parseLong;
-import static java.time.format.DateTimeFormatter.BASIC_ISO_DATE;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+import static com.verygoodbank.tes.web.dto.TradeOutputFormat.COLUMNAR;
+import static com.verygoodbank.tes.web.dto.TradeOutputFormat.CSV;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.compress;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.openInputStream;
+import static java.lang.System.nanoTime;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.newOutputStream;
 import static java.util.UUID.randomUUID;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 
 /**
  * TradeService is responsible for processing and enriching trade data.
@@ -26,103 +61,328 @@ import static java.util.UUID.randomUUID;
  * This class provides functionality to read trade data from a file, enrich it, and
  * write the updated data back to a new file.
  *
- * <p> The primary method, {@link #enrichTrades(MultipartFile)}, handles the full process of
- * reading trade data, enriching it with product names from the cache, and writing the updated
- * information to a new file.
- * This method is designed to process CSV format files.
+ * <p> The primary method, {@link #enrichTrades(InputStream, OutputStream)}, streams trade data
+ * from the input to the output.
+ * The input is split into chunks of complete lines by {@link CsvChunkReader}, and every chunk is parsed
+ * by {@link TradeCsvTokenizer}, validated by {@link BasicIsoDateValidator}, enriched and formatted
+ * by {@link TradeCsvWriter} on the trade enrichment worker pool, which has
+ * {@code trades.enrichment.parallelism} threads, or one thread per available processor
+ * when the property is not positive.
+ * With {@code spring.threads.virtual.enabled=true} on Java 21 or later, chunks are enriched on virtual threads
+ * instead, so that threads blocked on product lookups do not hold a platform thread.
+ * Chunks are written to the output in the order they were read, so the output keeps the original
+ * order of the trades, and at most {@code trades.enrichment.chunks-in-flight} chunks are held at once,
+ * so memory used per request does not depend on the size of the file.
+ * The number of rows read from every chunk can be observed with
+ * {@link #enrichTrades(InputStream, OutputStream, LongConsumer)}, which is used to report the progress of jobs.
+ * The method {@link #enrichTrades(MultipartFile)} uses the same pipeline to write the enriched
+ * trades into a new file registered in {@link OutputFileRegistry}, which is deleted once it is released
+ * or expires, and which {@link #enrichTrades(MultipartFile, TradeOutputFormat, boolean)} can write gzip-compressed.
+ * Both methods are designed to process CSV format files.
+ * The output stream is closed only once all the trades have been written: when the enrichment fails,
+ * it is neither flushed nor closed, so a response that has already started streaming is not completed
+ * as if it held the whole file, and a compressed output does not get its gzip trailer.
+ *
+ * <p> Discarded trades are logged per row at debug level with a rate limit, and every request that discarded
+ * trades logs a single warning, not rate limited, with the number of rows and the first product ids of each kind
+ * in the order of the input, as the trades discarded by a chunk are counted when the chunk is written.
+ *
+ * <p> Row counts, the time spent in every stage and the request sizes are recorded in {@link TradeEnrichmentMetrics}.
+ *
+ * <p> Product names for a chunk are resolved with batched cache lookups of its distinct product ids,
+ * one started asynchronously for every {@code LOOKUP_BATCH_SIZE} new ids while the rest of the chunk is parsed,
+ * unless the products are kept in-process, in which case every trade is looked up directly by its id
+ * and the lookups are counted once per chunk.
  */
 @Service
 public class TradeService {
+    private static final Logger log = LoggerFactory.getLogger(TradeService.class);
+    private static final RateLimitedLogger rowLog = new RateLimitedLogger(log, 100);
+    private static final int SAMPLE_PRODUCT_IDS = 10;
+    private static final int LOOKUP_BATCH_SIZE = 512;
+    private static final byte[] CSV_HEADER = TradeCsvWriter.HEADER.getBytes(UTF_8);
+
     private final ProductCacheService productCacheService;
+    private final OutputFileRegistry outputFileRegistry;
+    private final TradeEnrichmentMetrics tradeEnrichmentMetrics;
+    private final BasicIsoDateValidator dateValidator = new BasicIsoDateValidator();
+    private final Executor tradeEnrichmentExecutor;
+    private final int chunkSize;
+    private final int chunksInFlight;
 
-    public TradeService(ProductCacheService productCacheService) {
+    public TradeService(
+        ProductCacheService productCacheService,
+        OutputFileRegistry outputFileRegistry,
+        TradeEnrichmentMetrics tradeEnrichmentMetrics,
+        @Value("${trades.enrichment.parallelism:0}") int parallelism,
+        @Value("${trades.enrichment.chunk-size:65536}") int chunkSize,
+        @Value("${trades.enrichment.chunks-in-flight:64}") int chunksInFlight,
+        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
         this.productCacheService = productCacheService;
+        this.outputFileRegistry = outputFileRegistry;
+        this.tradeEnrichmentMetrics = tradeEnrichmentMetrics;
+        this.tradeEnrichmentExecutor = virtualThreads && isVirtualThreadsSupported()
+            ? new VirtualThreadTaskExecutor("trade-enrichment-")
+            : createTradeEnrichmentExecutor(parallelism);
+        this.chunkSize = chunkSize;
+        this.chunksInFlight = chunksInFlight;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (tradeEnrichmentExecutor instanceof ExecutorService executorService) executorService.shutdown();
     }
 
     public File enrichTrades(MultipartFile file) {
-        try {
-            List<Trade> trades = getTrades(file.getInputStream());
-            setTradeProductNames(trades);
-            return writeUpdatedTradesToFile(trades, generateTradeTranslatedFileName());
+        return enrichTrades(file, CSV, false);
+    }
+
+    public File enrichTrades(MultipartFile file, TradeOutputFormat outputFormat, boolean compressed) {
+        Path enrichedFile = outputFileRegistry.register(generateTradeTranslatedFileName(outputFormat));
+        try (InputStream inputStream = openInputStream(file);
+             OutputStream fileOutputStream = newOutputStream(enrichedFile);
+             OutputStream outputStream = compressed ? compress(fileOutputStream) : fileOutputStream) {
+            enrichTrades(inputStream, outputStream, processedRows -> {}, outputFormat);
         } catch (IOException exception) {
+            outputFileRegistry.release(enrichedFile);
             throw new RuntimeException("An error occurred during getting file input stream ", exception);
+        } catch (RuntimeException exception) {
+            outputFileRegistry.release(enrichedFile);
+            throw exception;
         }
+        return enrichedFile.toFile();
+    }
+
+    public void enrichTrades(InputStream inputStream, OutputStream outputStream) {
+        enrichTrades(inputStream, outputStream, processedRows -> {});
     }
 
-    private List<Trade> getTrades(InputStream inputStream) {
+    public void enrichTrades(InputStream inputStream, OutputStream outputStream, LongConsumer processedRowsListener) {
+        enrichTrades(inputStream, outputStream, processedRowsListener, CSV);
+    }
+
+    public void enrichTrades(
+        InputStream inputStream,
+        OutputStream outputStream,
+        LongConsumer processedRowsListener,
+        TradeOutputFormat outputFormat
+    ) {
+        Deque<CompletableFuture<EnrichedChunk>> enrichedChunks = new ArrayDeque<>(chunksInFlight);
+        DiscardedTrades discardedTrades = new DiscardedTrades(SAMPLE_PRODUCT_IDS);
+        CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+        CountingOutputStream countingOutputStream = new CountingOutputStream(outputStream);
+        int writtenChunks = 0;
         try {
-            Iterable<CSVRecord> csvRecords = readCsv(inputStream, TRADE_IN_HEADERS);
-            DateFormatValidator dateFormatValidator = new DateFormatValidator(BASIC_ISO_DATE);
-            return collectValidTrades(csvRecords, dateFormatValidator);
-        } catch (Exception exception) {
-            throw new RuntimeException("An error occurred during csv file parsing ", exception);
+            countingOutputStream.write(outputFormat == COLUMNAR ? TradeColumnarWriter.HEADER : CSV_HEADER);
+            CsvChunkReader chunkReader = new CsvChunkReader(countingInputStream, chunkSize);
+            byte[] chunk;
+            while ((chunk = chunkReader.nextChunk()) != null) {
+                if (enrichedChunks.size() == chunksInFlight) {
+                    writeEnrichedChunk(enrichedChunks.poll(), countingOutputStream, discardedTrades);
+                    writtenChunks++;
+                }
+                byte[] tradeChunk = chunk;
+                enrichedChunks.add(supplyAsync(
+                    () -> enrichChunk(tradeChunk, outputFormat, processedRowsListener),
+                    tradeEnrichmentExecutor
+                ));
+            }
+            while (!enrichedChunks.isEmpty()) {
+                writeEnrichedChunk(enrichedChunks.poll(), countingOutputStream, discardedTrades);
+                writtenChunks++;
+            }
+            if (outputFormat == COLUMNAR) countingOutputStream.write(TradeColumnarWriter.TRAILER);
+            countingOutputStream.close();
+            tradeEnrichmentMetrics.recordRequest(countingInputStream.getCount(), countingOutputStream.getCount());
+        } catch (IOException exception) {
+            throw new RuntimeException("An error occurred during csv file writing ", exception);
+        } catch (CompletionException exception) {
+            throw createEnrichmentException(exception.getCause(), writtenChunks > 0);
+        } catch (ResponseStatusException exception) {
+            throw createEnrichmentException(exception, writtenChunks > 0);
+        } finally {
+            enrichedChunks.forEach(enrichedChunk -> enrichedChunk.cancel(false));
         }
+        logDiscardedTrades(discardedTrades);
+    }
+
+    /**
+     * A {@link ResponseStatusException}, such as a request limit being exceeded, is rethrown only while no
+     * enriched chunk has been flushed, as the status of a response that has started streaming can no longer change;
+     * afterwards it is wrapped like any other failure, which is not resolved into a status, so the response is aborted.
+     */
+    private RuntimeException createEnrichmentException(Throwable cause, boolean outputStarted) {
+        if (cause instanceof ResponseStatusException statusException && !outputStarted) return statusException;
+        return new RuntimeException("An error occurred during csv file parsing ", cause);
+    }
+
+    private void logDiscardedTrades(DiscardedTrades discardedTrades) {
+        if (discardedTrades.isEmpty()) return;
+        log.warn(
+            "{} rows discarded for invalid date, {} rows with missing product name; " +
+                "first product ids with invalid date {}, first missing product ids {}",
+            discardedTrades.getInvalidDates(), discardedTrades.getMissingProducts(),
+            Arrays.toString(discardedTrades.getInvalidDateIds()), Arrays.toString(discardedTrades.getMissingProductIds())
+        );
+    }
+
+    private void writeEnrichedChunk(
+        CompletableFuture<EnrichedChunk> enrichedChunk, OutputStream outputStream, DiscardedTrades discardedTrades
+    ) throws IOException {
+        EnrichedChunk enrichedTrades = enrichedChunk.join();
+        discardedTrades.merge(enrichedTrades.discardedTrades);
+        long writeStart = nanoTime();
+        outputStream.write(enrichedTrades.trades);
+        outputStream.flush();
+        tradeEnrichmentMetrics.recordWrite(nanoTime() - writeStart);
     }
 
-    private List<Trade> collectValidTrades(Iterable<CSVRecord> csvRecords, DateFormatValidator dateFormatValidator) {
+    private EnrichedChunk enrichChunk(byte[] chunk, TradeOutputFormat outputFormat, LongConsumer processedRowsListener) {
+        long parseStart = nanoTime();
+        DiscardedTrades discardedInChunk = new DiscardedTrades(SAMPLE_PRODUCT_IDS);
         List<Trade> trades = new ArrayList<>();
-        for (CSVRecord csvRecord : csvRecords) {
-            String productDate = csvRecord.get("date");
-            long productId = parseLong(csvRecord.get("product_id"));
-            if (!dateFormatValidator.isValid(productDate)) {
-                System.err.println(
-                    "There is invalid date format for product with id " + productId +
-                        ". Discard product from csv file."
+        ProductLookups productLookups = productCacheService.isLocal() ? null : new ProductLookups();
+        collectValidTrades(chunk, trades, discardedInChunk, productLookups);
+        long lookupStart = nanoTime();
+        setTradeProductNames(trades, discardedInChunk, productLookups);
+        long formatStart = nanoTime();
+        byte[] enrichedTrades = outputFormat == COLUMNAR ? TradeColumnarWriter.encode(trades) : formatCsv(trades, chunk.length);
+        long formatEnd = nanoTime();
+        processedRowsListener.accept(trades.size() + discardedInChunk.getInvalidDates());
+        tradeEnrichmentMetrics.recordChunk(
+            trades.size(), discardedInChunk.getInvalidDates(), discardedInChunk.getMissingProducts(),
+            lookupStart - parseStart, formatStart - lookupStart, formatEnd - formatStart
+        );
+        return new EnrichedChunk(enrichedTrades, discardedInChunk);
+    }
+
+    private byte[] formatCsv(List<Trade> trades, int chunkLength) {
+        StringBuilder enrichedChunk = new StringBuilder(chunkLength * 2);
+        TradeCsvWriter tradeCsvWriter = new TradeCsvWriter(enrichedChunk);
+        for (Trade trade : trades) {
+            tradeCsvWriter.write(trade);
+        }
+        return enrichedChunk.toString().getBytes(UTF_8);
+    }
+
+    private void collectValidTrades(
+        byte[] chunk, List<Trade> trades, DiscardedTrades discardedTrades, ProductLookups productLookups
+    ) {
+        TradeCsvTokenizer tokenizer = new TradeCsvTokenizer(chunk);
+        TradeRow tradeRow = new TradeRow();
+        while (tokenizer.next(tradeRow)) {
+            if (!dateValidator.isValid(tradeRow.getDate())) {
+                rowLog.debug(
+                    "There is invalid date format for product with id {}. Discard product from csv file.",
+                    tradeRow.getProductId()
                 );
+                discardedTrades.addInvalidDate(tradeRow.getProductId());
             } else {
-                trades.add(createTrade(productId, productDate, csvRecord));
+                trades.add(createTrade(tradeRow));
+                if (productLookups != null) productLookups.add(tradeRow.getProductId());
             }
         }
-        return trades;
     }
 
-    private Trade createTrade(Long productId, String productDate, CSVRecord csvRecord) {
+    private Trade createTrade(TradeRow tradeRow) {
         return new Trade(
-            productDate,
-            productId,
-            csvRecord.get("currency"),
-            parseDouble(csvRecord.get("price"))
+            tradeRow.getDate(),
+            tradeRow.getProductId(),
+            tradeRow.getCurrency(),
+            tradeRow.getPrice()
         );
     }
 
-    private void setTradeProductNames(List<Trade> trades) {
-        for (Trade trade : trades) {
-            Product product = productCacheService.get(trade.getProductId());
-            if (product == null) {
-                System.err.println(
-                    "There is no name for product with id " + trade.getProductId() +
-                        ". Discard product from final csv."
-                );
-                trade.setProductName("Missing Product Name");
-            } else {
-                trade.setProductName(product.getProductName());
+    private void setTradeProductNames(
+        List<Trade> trades, DiscardedTrades discardedTrades, ProductLookups productLookups
+    ) {
+        if (productLookups == null) {
+            int found = 0;
+            for (Trade trade : trades) {
+                Product product = productCacheService.getUnrecorded(trade.getProductId());
+                if (product != null) found++;
+                setTradeProductName(trade, product, discardedTrades);
             }
+            productCacheService.recordLookups(trades.size(), found);
+            return;
+        }
+        Map<Long, Product> products = productLookups.join();
+        for (Trade trade : trades) {
+            setTradeProductName(trade, products.get(trade.getProductId()), discardedTrades);
         }
     }
 
-    public File writeUpdatedTradesToFile(List<Trade> trades, String filePath) throws IOException {
-        File file = new File(filePath);
-        CSVPrinter csvPrinter = getCsvPrinter(file, TRADE_OUT_HEADERS);
-        try {
-            addRecordsToFile(trades, csvPrinter);
-        } catch (IOException exception){
-            throw new RuntimeException("An error occurred during csv file writing ", exception);
-        } finally {
-            csvPrinter.flush();
-            csvPrinter.close();
+    private void setTradeProductName(Trade trade, Product product, DiscardedTrades discardedTrades) {
+        if (product == null) {
+            rowLog.debug("There is no name for product with id {}. Discard product from final csv.", trade.getProductId());
+            discardedTrades.addMissingProduct(trade.getProductId());
+            trade.setProductName("Missing Product Name");
+        } else {
+            trade.setProductName(product.getProductName());
         }
-        return file;
     }
 
-    private void addRecordsToFile(List<Trade> trades, CSVPrinter csvPrinter) throws IOException {
-        for (Trade trade : trades) {
-            String[] record = trade.toString()
-                    .split(COMMA);
-            csvPrinter.printRecord(record);
+    private boolean isVirtualThreadsSupported() {
+        return JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+    }
+
+    private ExecutorService createTradeEnrichmentExecutor(int parallelism) {
+        int poolSize = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        return newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "trade-enrichment-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private String generateTradeTranslatedFileName(TradeOutputFormat outputFormat) {
+        return "trade-" + randomUUID() + outputFormat.getFileExtension();
+    }
+
+    /**
+     * EnrichedChunk holds the encoded trades of a chunk together with the trades it discarded, which are merged
+     * into those of the request when the chunk is written, so in the order of the input.
+     */
+    private static final class EnrichedChunk {
+        private final byte[] trades;
+        private final DiscardedTrades discardedTrades;
+
+        EnrichedChunk(byte[] trades, DiscardedTrades discardedTrades) {
+            this.trades = trades;
+            this.discardedTrades = discardedTrades;
         }
     }
 
-    private String generateTradeTranslatedFileName() {
-        return "trade-" + randomUUID() + ".csv";
+    /**
+     * ProductLookups collects the distinct product ids of a chunk and starts a batched lookup of every
+     * {@code LOOKUP_BATCH_SIZE} of them, so that the lookups run while the chunk is still being parsed.
+     */
+    private final class ProductLookups {
+        private final Set<Long> requestedProductIds = new HashSet<>();
+        private final List<CompletableFuture<Map<Long, Product>>> lookups = new ArrayList<>();
+        private Set<Long> pendingProductIds = new HashSet<>();
+
+        void add(long productId) {
+            if (!requestedProductIds.add(productId)) return;
+            pendingProductIds.add(productId);
+            if (pendingProductIds.size() >= LOOKUP_BATCH_SIZE) startLookup();
+        }
+
+        Map<Long, Product> join() {
+            if (!pendingProductIds.isEmpty()) startLookup();
+            if (lookups.size() == 1) return lookups.get(0).join();
+            Map<Long, Product> products = new HashMap<>(requestedProductIds.size() * 2);
+            for (CompletableFuture<Map<Long, Product>> lookup : lookups) {
+                products.putAll(lookup.join());
+            }
+            return products;
+        }
+
+        private void startLookup() {
+            lookups.add(productCacheService.getAllAsync(pendingProductIds));
+            pendingProductIds = new HashSet<>();
+        }
     }
 }
@@ -0,0 +1,343 @@
+package com.verygoodbank.tes.web.service.cache;
+
+import com.hazelcast.cluster.Member;
+import com.hazelcast.core.HazelcastInstance;
+import com.hazelcast.core.HazelcastInstanceAware;
+import com.hazelcast.map.EntryProcessor;
+import com.hazelcast.map.IMap;
+import com.hazelcast.map.listener.EntryAddedListener;
+import com.hazelcast.partition.Partition;
+import com.hazelcast.partition.PartitionService;
+import com.hazelcast.query.Predicates;
+import com.verygoodbank.tes.web.config.HazelcastConfig;
+import com.verygoodbank.tes.web.dto.cache.Product;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.system.JavaVersion;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.stereotype.Component;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import static com.hazelcast.query.QueryConstants.KEY_ATTRIBUTE_NAME;
+import static com.hazelcast.query.QueryConstants.THIS_ATTRIBUTE_NAME;
+import static com.hazelcast.core.LifecycleEvent.LifecycleState.CLIENT_DISCONNECTED;
+import static com.verygoodbank.tes.web.service.cache.ProductCacheService.CATALOGUE_GENERATION;
+import static com.verygoodbank.tes.web.service.cache.ProductCacheService.PRODUCTS;
+import static com.verygoodbank.tes.web.service.cache.ProductCacheService.PRODUCT_MAINTENANCE;
+import static com.verygoodbank.tes.web.service.cache.ProductCacheService.PRODUCT_GENERATIONS;
+import static java.util.concurrent.CompletableFuture.allOf;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.Executors.newFixedThreadPool;
+
+/**
+ * HazelcastProductStore is the default {@link ProductStore} keeping products in the distributed
+ * {@code products} map, obtained from {@link HazelcastConfig}.
+ *
+ * <p> Generations are drawn from the cluster-wide {@code product-catalogue-generation} atomic long, so they
+ * increase across all the nodes whatever their clocks, and are kept apart in the {@code product-generations} map
+ * of plain {@code Long} values, so the cluster members can find the products of older generations with a predicate
+ * without the {@link Product} serializer.
+ * Stamping runs an entry processor that only ever raises the generation of a product, so a concurrent load
+ * with an older generation cannot make the products of a newer one look stale.
+ * Removing the older generations runs a task on every member, through the {@code product-maintenance}
+ * executor, which removes the stale products among those the member owns, so no product id is transferred
+ * to the client.
+ * The task and the entry processors are nested in this class, which has to be on the classpath of the members.
+ *
+ * <p> {@link #getAllAsync(Set)} groups the product ids by the cluster member owning their partition
+ * and looks every group up with its own {@code getAll} on the product lookup pool, so a lookup waits for the slowest
+ * member instead of all of them in turn and its throughput grows with the number of members.
+ * The pool has {@code products.lookup.parallelism} threads, or four threads per available processor
+ * when the property is not positive, as its threads mostly wait for the cluster.
+ * With {@code spring.threads.virtual.enabled=true} on Java 21 or later, every member lookup runs on its own
+ * virtual thread instead, so lookups waiting for the cluster are not limited by the size of a pool.
+ *
+ * <p> Every started client listens for products added to the {@code products} map by any node and passes their ids
+ * to the {@link ProductIdListener}; a disconnected client may miss such events and reports the ids as lost.
+ * The stored product ids are then read by {@link #getProductIds()} one partition at a time with a partition
+ * predicate instead of a single {@code keySet}, so no member has to collect the ids of the whole map at once.
+ */
+@Component
+@ConditionalOnProperty(name = "products.store", havingValue = "hazelcast", matchIfMissing = true)
+public class HazelcastProductStore implements ProductStore {
+    private static final Logger log = LoggerFactory.getLogger(HazelcastProductStore.class);
+    
+    private final HazelcastConfig hazelcastConfig;
+    private final Executor productLookupExecutor;
+    private volatile ProductIdListener productIdListener;
+
+    public HazelcastProductStore(
+        HazelcastConfig hazelcastConfig,
+        @Value("${products.lookup.parallelism:0}") int lookupParallelism,
+        @Value("${spring.threads.virtual.enabled:false}") boolean virtualThreads
+    ) {
+        this.hazelcastConfig = hazelcastConfig;
+        this.productLookupExecutor = virtualThreads && isVirtualThreadsSupported()
+            ? new VirtualThreadTaskExecutor("product-lookup-")
+            : createProductLookupExecutor(lookupParallelism);
+        hazelcastConfig.onClientStarted(this::listenForProducts);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (productLookupExecutor instanceof ExecutorService executorService) executorService.shutdown();
+    }
+
+    @Override
+    public void put(long productId, Product product) {
+        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
+        map.put(productId, product);
+    }
+
+    @Override
+    public void putAll(Map<Long, Product> products) {
+        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
+        map.putAll(products);
+    }
+
+    @Override
+    public Product get(long productId) {
+        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
+        return map.get(productId);
+    }
+
+    @Override
+    public Map<Long, Product> getAll(Set<Long> productIds) {
+        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
+        return map.getAll(productIds);
+    }
+
+    @Override
+    public CompletableFuture<Map<Long, Product>> getAllAsync(Set<Long> productIds) {
+        if (productIds.isEmpty()) return CompletableFuture.completedFuture(new HashMap<>());
+        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
+        List<CompletableFuture<Map<Long, Product>>> memberLookups = new ArrayList<>();
+        for (Set<Long> memberProductIds : groupByPartitionOwner(productIds).values()) {
+            memberLookups.add(supplyAsync(() -> map.getAll(memberProductIds), productLookupExecutor));
+        }
+        if (memberLookups.size() == 1) return memberLookups.get(0);
+        return allOf(memberLookups.toArray(CompletableFuture<?>[]::new)).thenApply(ignored -> {
+            Map<Long, Product> products = new HashMap<>(productIds.size() * 2);
+            memberLookups.forEach(memberLookup -> products.putAll(memberLookup.join()));
+            return products;
+        });
+    }
+
+    @Override
+    public Set<Long> getProductIds() {
+        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
+        Set<Long> productIds = new HashSet<>();
+        for (Long partitionKey : getPartitionKeys()) {
+            productIds.addAll(map.keySet(Predicates.partitionPredicate(partitionKey, Predicates.alwaysTrue())));
+        }
+        return productIds;
+    }
+
+    @Override
+    public void setProductIdListener(ProductIdListener productIdListener) {
+        this.productIdListener = productIdListener;
+    }
+
+    @Override
+    public void evict(long productId) {
+        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
+        map.evict(productId);
+        hazelcastConfig.getGenerationMap(PRODUCT_GENERATIONS)
+            .delete(productId);
+    }
+
+    @Override
+    public void evictAll(Set<Long> productIds) {
+        if (productIds.isEmpty()) return;
+        Long[] evictedProductIds = productIds.toArray(new Long[0]);
+        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
+        map.removeAll(Predicates.in(KEY_ATTRIBUTE_NAME.value(), evictedProductIds));
+        hazelcastConfig.getGenerationMap(PRODUCT_GENERATIONS)
+            .removeAll(Predicates.in(KEY_ATTRIBUTE_NAME.value(), evictedProductIds));
+    }
+
+    @Override
+    public long nextGeneration() {
+        return hazelcastConfig.getAtomicLong(CATALOGUE_GENERATION).incrementAndGet();
+    }
+
+    @Override
+    public void stampGeneration(Set<Long> productIds, long generation) {
+        hazelcastConfig.getGenerationMap(PRODUCT_GENERATIONS)
+            .executeOnKeys(productIds, new GenerationStamp(generation));
+    }
+
+    @Override
+    public int removeOlderGenerations(long generation) {
+        Map<Member, Future<Integer>> memberRemovals = hazelcastConfig.getExecutorService(PRODUCT_MAINTENANCE)
+            .submitToAllMembers(new StaleProductRemoval(generation));
+        int removed = 0;
+        try {
+            for (Future<Integer> memberRemoval : memberRemovals.values()) {
+                removed += memberRemoval.get();
+            }
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("An error occurred during removing products of older generations", exception);
+        } catch (ExecutionException exception) {
+            throw new RuntimeException("An error occurred during removing products of older generations", exception.getCause());
+        }
+        return removed;
+    }
+
+    @Override
+    public boolean isLocal() {
+        return false;
+    }
+
+    private void listenForProducts(HazelcastInstance client) {
+        client.getLifecycleService().addLifecycleListener(event -> {
+            if (event.getState() == CLIENT_DISCONNECTED) notifyProductIdsLost();
+        });
+        try {
+            client.<Long, Product>getMap(PRODUCTS)
+                .addEntryListener((EntryAddedListener<Long, Product>) event -> notifyProductAdded(event.getKey()), false);
+        } catch (RuntimeException exception) {
+            log.warn("An error occurred during listening for added products", exception);
+            notifyProductIdsLost();
+        }
+    }
+
+    private void notifyProductAdded(long productId) {
+        ProductIdListener listener = productIdListener;
+        if (listener != null) listener.productAdded(productId);
+    }
+
+    private void notifyProductIdsLost() {
+        ProductIdListener listener = productIdListener;
+        if (listener != null) listener.productIdsLost();
+    }
+
+    private Map<Member, Set<Long>> groupByPartitionOwner(Set<Long> productIds) {
+        PartitionService partitionService = hazelcastConfig.getPartitionService();
+        Map<Member, Set<Long>> productIdsByOwner = new HashMap<>();
+        for (Long productId : productIds) {
+            Partition partition = partitionService.getPartition(productId);
+            productIdsByOwner.computeIfAbsent(partition.getOwner(), owner -> new HashSet<>()).add(productId);
+        }
+        return productIdsByOwner;
+    }
+
+    /**
+     * Returns one key of every partition, found by probing the product ids from zero, to address the partitions
+     * with a partition predicate.
+     */
+    private Collection<Long> getPartitionKeys() {
+        PartitionService partitionService = hazelcastConfig.getPartitionService();
+        int partitionCount = partitionService.getPartitions().size();
+        Map<Integer, Long> partitionKeys = new HashMap<>(partitionCount * 2);
+        for (long productId = 0; partitionKeys.size() < partitionCount; productId++) {
+            partitionKeys.putIfAbsent(partitionService.getPartition(productId).getPartitionId(), productId);
+        }
+        return partitionKeys.values();
+    }
+
+    private static boolean isVirtualThreadsSupported() {
+        return JavaVersion.getJavaVersion().isEqualOrNewerThan(JavaVersion.TWENTY_ONE);
+    }
+
+    private static ExecutorService createProductLookupExecutor(int lookupParallelism) {
+        int poolSize = lookupParallelism > 0 ? lookupParallelism : 4 * Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        return newFixedThreadPool(poolSize, runnable -> {
+            Thread thread = new Thread(runnable, "product-lookup-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * GenerationStamp sets the generation of a product unless it already has a newer one.
+     */
+    private static final class GenerationStamp implements EntryProcessor<Long, Long, Void> {
+        private final long generation;
+
+        GenerationStamp(long generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public Void process(Map.Entry<Long, Long> entry) {
+            Long productGeneration = entry.getValue();
+            if (productGeneration == null || productGeneration < generation) entry.setValue(generation);
+            return null;
+        }
+    }
+
+    /**
+     * GenerationRemoval removes the generation of a product if it is still older than the given one,
+     * and reports whether it has removed it.
+     */
+    private static final class GenerationRemoval implements EntryProcessor<Long, Long, Boolean> {
+        private final long generation;
+
+        GenerationRemoval(long generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public Boolean process(Map.Entry<Long, Long> entry) {
+            Long productGeneration = entry.getValue();
+            if (productGeneration == null || productGeneration >= generation) return false;
+            entry.setValue(null);
+            return true;
+        }
+    }
+
+    /**
+     * StaleProductRemoval runs on every member and removes the products of older generations among those
+     * the member owns: it removes their generations with {@link GenerationRemoval}, so a product stamped again
+     * in the meantime keeps both its generation and itself, and then the products whose generation it has removed.
+     */
+    private static final class StaleProductRemoval implements Callable<Integer>, Serializable, HazelcastInstanceAware {
+        private final long generation;
+        private transient HazelcastInstance hazelcastInstance;
+
+        StaleProductRemoval(long generation) {
+            this.generation = generation;
+        }
+
+        @Override
+        public void setHazelcastInstance(HazelcastInstance hazelcastInstance) {
+            this.hazelcastInstance = hazelcastInstance;
+        }
+
+        @Override
+        public Integer call() {
+            IMap<Long, Long> generations = hazelcastInstance.getMap(PRODUCT_GENERATIONS);
+            Set<Long> staleProductIds = generations.localKeySet(
+                Predicates.lessThan(THIS_ATTRIBUTE_NAME.value(), generation)
+            );
+            if (staleProductIds.isEmpty()) return 0;
+            List<Long> removedProductIds = new ArrayList<>(staleProductIds.size());
+            generations.executeOnKeys(staleProductIds, new GenerationRemoval(generation)).forEach((productId, removed) -> {
+                if (Boolean.TRUE.equals(removed)) removedProductIds.add(productId);
+            });
+            if (removedProductIds.isEmpty()) return 0;
+            hazelcastInstance.getMap(PRODUCTS)
+                .removeAll(Predicates.in(KEY_ATTRIBUTE_NAME.value(), removedProductIds.toArray(new Long[0])));
+            return removedProductIds.size();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.verygoodbank.tes.web.service.cache;
+
+import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.utils.LongObjectHashMap;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * LocalProductStore is an in-process {@link ProductStore} for small deployments that run without
+ * a Hazelcast cluster, enabled with {@code products.store=local}.
+ *
+ * <p> Products are kept in a {@link LongObjectHashMap}, so a lookup by a primitive product id
+ * neither boxes the key nor allocates.
+ * Lookups share a read lock and the rare catalogue updates take the write lock.
+ */
+@Component
+@ConditionalOnProperty(name = "products.store", havingValue = "local")
+public class LocalProductStore implements ProductStore {
+    private final LongObjectHashMap<Product> products = new LongObjectHashMap<>();
+    private final LongObjectHashMap<Long> generations = new LongObjectHashMap<>();
+    private final AtomicLong lastGeneration = new AtomicLong();
+    private final StampedLock lock = new StampedLock();
+
+    @Override
+    public void put(long productId, Product product) {
+        long stamp = lock.writeLock();
+        try {
+            products.put(productId, product);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void putAll(Map<Long, Product> products) {
+        long stamp = lock.writeLock();
+        try {
+            products.forEach(this.products::put);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public Product get(long productId) {
+        long stamp = lock.readLock();
+        try {
+            return products.get(productId);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public Map<Long, Product> getAll(Set<Long> productIds) {
+        Map<Long, Product> found = new HashMap<>();
+        long stamp = lock.readLock();
+        try {
+            for (Long productId : productIds) {
+                Product product = products.get(productId);
+                if (product != null) found.put(productId, product);
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return found;
+    }
+
+    @Override
+    public Set<Long> getProductIds() {
+        Set<Long> productIds = new HashSet<>();
+        long stamp = lock.readLock();
+        try {
+            products.forEach((productId, product) -> productIds.add(productId));
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        return productIds;
+    }
+
+    @Override
+    public void evict(long productId) {
+        long stamp = lock.writeLock();
+        try {
+            products.remove(productId);
+            generations.remove(productId);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void evictAll(Set<Long> productIds) {
+        long stamp = lock.writeLock();
+        try {
+            for (Long productId : productIds) {
+                products.remove(productId);
+                generations.remove(productId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public long nextGeneration() {
+        return lastGeneration.incrementAndGet();
+    }
+
+    @Override
+    public void stampGeneration(Set<Long> productIds, long generation) {
+        long stamp = lock.writeLock();
+        try {
+            for (Long productId : productIds) {
+                Long productGeneration = generations.get(productId);
+                if (productGeneration == null || productGeneration < generation) generations.put(productId, generation);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int removeOlderGenerations(long generation) {
+        List<Long> staleProductIds = new ArrayList<>();
+        long stamp = lock.writeLock();
+        try {
+            generations.forEach((productId, productGeneration) -> {
+                if (productGeneration < generation) staleProductIds.add(productId);
+            });
+            for (Long productId : staleProductIds) {
+                products.remove(productId);
+                generations.remove(productId);
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        return staleProductIds.size();
+    }
+
+    @Override
+    public boolean isLocal() {
+        return true;
+    }
+}
@@ -1,51 +1,164 @@
 package com.verygoodbank.tes.web.service.cache;
 
-import com.hazelcast.map.IMap;
 import com.verygoodbank.tes.web.config.HazelcastConfig;
 import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.metrics.ProductCacheMetrics;
 import org.springframework.stereotype.Service;
-import java.util.Iterator;
-import java.util.Map.Entry;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import static java.lang.System.nanoTime;
 
 /**
  * ProductCacheService provides a layer of abstraction over a distributed cache, specifically
  * for caching product-related information.
- * It utilizes Hazelcast as the underlying caching mechanism, configured through {@link HazelcastConfig}.
+ * By default it utilizes Hazelcast as the underlying caching mechanism, configured through {@link HazelcastConfig}.
  * This service allows for the storage, retrieval, and eviction of product data within the cache.
  *
- * <p> The class defines basic cache operations such as 'put', 'get', 'evict', and a method
- * to get an iterator over cache entries.
- * The actual cache map is obtained from the HazelcastConfig, and operations are performed on this map.
+ * <p> The class defines basic cache operations such as 'put', 'putAll', 'get', 'evict', 'evictAll', and methods
+ * to stamp products with a catalogue generation and to remove the products of older generations.
+ * The 'getAll' operation resolves a set of product ids in a single batched lookup
+ * and is preferred over 'get' whenever several products are looked up at once;
+ * 'getAllAsync' starts such a lookup without waiting for it, see {@link ProductStore#getAllAsync(Set)}.
+ * Both lookups are served from the client near cache configured in {@link HazelcastConfig} when possible.
  *
- * <p> The {@code PRODUCTS} constant defines the name of the cache map that this service interacts with.
+ * <p> The operations are delegated to the {@link ProductStore} selected by the {@code products.store}
+ * property, which allows small deployments to keep products in-process with {@link LocalProductStore}.
+ *
+ * <p> Lookups of product ids that {@link ProductNegativeCache} knows to be missing are answered without
+ * touching a remote store, and ids found missing in the store are reported back to it.
+ * A local store answers misses in-process anyway and bypasses the negative cache.
+ *
+ * <p> Hits, misses and the latency of batched lookups are recorded in {@link ProductCacheMetrics}.
+ *
+ * <p> The {@code PRODUCTS} constant defines the name of the cache map that this service interacts with,
+ * {@code PRODUCT_GENERATIONS} the name of the map keeping the generation of every product,
+ * {@code CATALOGUE_GENERATION} the name of the counter the generations are drawn from
+ * and {@code PRODUCT_MAINTENANCE} the name of the executor running the removal of older generations on the members.
  */
 @Service
 public class ProductCacheService {
-    private final HazelcastConfig hazelcastConfig;
+    private final ProductStore productStore;
+    private final ProductCacheMetrics productCacheMetrics;
+    private final ProductNegativeCache productNegativeCache;
     public static final String PRODUCTS = "products";
+    public static final String PRODUCT_GENERATIONS = "product-generations";
+    public static final String CATALOGUE_GENERATION = "product-catalogue-generation";
+    public static final String PRODUCT_MAINTENANCE = "product-maintenance";
 
-    public ProductCacheService(HazelcastConfig hazelcastConfig) {
-        this.hazelcastConfig = hazelcastConfig;
+    public ProductCacheService(
+        ProductStore productStore, ProductCacheMetrics productCacheMetrics, ProductNegativeCache productNegativeCache
+    ) {
+        this.productStore = productStore;
+        this.productCacheMetrics = productCacheMetrics;
+        this.productNegativeCache = productNegativeCache;
+        productStore.setProductIdListener(productNegativeCache);
     }
 
     public void put(Long productId, Product product) {
-        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
-        map.put(productId, product);
+        productStore.put(productId, product);
+        productNegativeCache.recordKnown(Set.of(productId));
+    }
+
+    public void putAll(Map<Long, Product> products) {
+        productStore.putAll(products);
+        productNegativeCache.recordKnown(products.keySet());
+    }
+
+    public Product get(long productId) {
+        boolean negativeLookups = !productStore.isLocal();
+        if (negativeLookups && productNegativeCache.isKnownMissing(productId)) {
+            productCacheMetrics.recordNegativeLookups(1);
+            return null;
+        }
+        Product product = productStore.get(productId);
+        productCacheMetrics.recordLookup(product != null);
+        if (negativeLookups && product == null) productNegativeCache.recordMiss(productId);
+        return product;
     }
 
-    public Product get(Long productId) {
-        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
-        return map.get(productId);
+    /**
+     * Looks a product up in the store without recording the lookup, for callers that look up many products
+     * one by one and report them at once with {@link #recordLookups(int, int)}.
+     */
+    public Product getUnrecorded(long productId) {
+        return productStore.get(productId);
+    }
+
+    public void recordLookups(int requested, int found) {
+        productCacheMetrics.recordLookups(requested, found);
+    }
+
+    public Map<Long, Product> getAll(Set<Long> productIds) {
+        Set<Long> lookedUpProductIds = withoutKnownMissing(productIds);
+        if (lookedUpProductIds.isEmpty()) return new HashMap<>();
+        long lookupStart = nanoTime();
+        return recordBatchLookup(lookedUpProductIds, productStore.getAll(lookedUpProductIds), lookupStart);
+    }
+
+    public CompletableFuture<Map<Long, Product>> getAllAsync(Set<Long> productIds) {
+        Set<Long> lookedUpProductIds = withoutKnownMissing(productIds);
+        if (lookedUpProductIds.isEmpty()) return CompletableFuture.completedFuture(new HashMap<>());
+        long lookupStart = nanoTime();
+        return productStore.getAllAsync(lookedUpProductIds)
+            .thenApply(products -> recordBatchLookup(lookedUpProductIds, products, lookupStart));
     }
 
     public void evict(Long productId) {
-        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
-        map.evict(productId);
+        productStore.evict(productId);
+    }
+
+    public void evictAll(Set<Long> productIds) {
+        productStore.evictAll(productIds);
+    }
+
+    public long nextGeneration() {
+        return productStore.nextGeneration();
+    }
+
+    public void stampGeneration(Set<Long> productIds, long generation) {
+        productStore.stampGeneration(productIds, generation);
+    }
+
+    public int removeOlderGenerations(long generation) {
+        return productStore.removeOlderGenerations(generation);
+    }
+
+    /**
+     * Rebuilds the negative lookup cache after the given catalogue has been loaded, see {@link ProductNegativeCache}.
+     */
+    public void rebuildNegativeCache(ProductCatalogueSnapshot catalogue) {
+        if (productStore.isLocal()) return;
+        productNegativeCache.rebuild(catalogue, productStore::getProductIds);
+    }
+
+    public boolean isLocal() {
+        return productStore.isLocal();
+    }
+
+    private Set<Long> withoutKnownMissing(Set<Long> productIds) {
+        if (productStore.isLocal()) return productIds;
+        Set<Long> lookedUpProductIds = null;
+        for (Long productId : productIds) {
+            if (productNegativeCache.isKnownMissing(productId)) {
+                if (lookedUpProductIds == null) lookedUpProductIds = new HashSet<>(productIds);
+                lookedUpProductIds.remove(productId);
+            }
+        }
+        if (lookedUpProductIds == null) return productIds;
+        productCacheMetrics.recordNegativeLookups(productIds.size() - lookedUpProductIds.size());
+        return lookedUpProductIds;
     }
 
-    public Iterator<Entry<Long, Product>> getKeySet() {
-        IMap<Long, Product> map = hazelcastConfig.getCacheMap(PRODUCTS);
-        return map.entrySet()
-            .iterator();
+    private Map<Long, Product> recordBatchLookup(Set<Long> productIds, Map<Long, Product> products, long lookupStart) {
+        productCacheMetrics.recordBatchLookup(productIds.size(), products.size(), nanoTime() - lookupStart);
+        if (!productStore.isLocal() && products.size() < productIds.size()) {
+            for (Long productId : productIds) {
+                if (!products.containsKey(productId)) productNegativeCache.recordMiss(productId);
+            }
+        }
+        return products;
     }
 }
@@ -0,0 +1,93 @@
+package com.verygoodbank.tes.web.service.cache;
+
+import com.verygoodbank.tes.web.dto.CatalogueReloadResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * ProductCacheWarmUp loads the product catalogue into the cache with {@link ProductCatalogueService}
+ * on a background thread, which starts as soon as this component is created, so the connection to the cache
+ * and the catalogue load run in parallel with the rest of the context startup instead of blocking it.
+ *
+ * <p> A failed load is retried every {@code products.warm-up.retry-delay-millis} until it succeeds.
+ * Until then {@link #isReady()} is {@code false}, which keeps the enrichment endpoints from taking traffic
+ * and the readiness health group out of service.
+ */
+@Component
+public class ProductCacheWarmUp {
+    private static final Logger log = LoggerFactory.getLogger(ProductCacheWarmUp.class);
+
+    private final ProductCatalogueService productCatalogueService;
+    private final long retryDelayMillis;
+    private final CompletableFuture<CatalogueReloadResult> warmUp = new CompletableFuture<>();
+    private volatile Thread warmUpThread;
+
+    public ProductCacheWarmUp(
+        ProductCatalogueService productCatalogueService,
+        @Value("${products.warm-up.retry-delay-millis:5000}") long retryDelayMillis
+    ) {
+        this.productCatalogueService = productCatalogueService;
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    @PostConstruct
+    public void start() {
+        warmUpThread = new Thread(this::warmUp, "product-cache-warm-up");
+        warmUpThread.setDaemon(true);
+        warmUpThread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (warmUpThread != null) warmUpThread.interrupt();
+    }
+
+    public boolean isReady() {
+        return warmUp.isDone();
+    }
+
+    public CompletableFuture<CatalogueReloadResult> getWarmUp() {
+        return warmUp;
+    }
+
+    public void awaitReady(Duration timeout) throws TimeoutException, InterruptedException {
+        try {
+            warmUp.get(timeout.toMillis(), MILLISECONDS);
+        } catch (ExecutionException exception) {
+            throw new RuntimeException("An error occurred during product cache warm-up", exception.getCause());
+        }
+    }
+
+    private void warmUp() {
+        long warmUpStart = nanoTime();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                CatalogueReloadResult result = productCatalogueService.reload();
+                log.info(
+                    "Put products from static resource into the cache in {} ms: {}.",
+                    NANOSECONDS.toMillis(nanoTime() - warmUpStart), result
+                );
+                warmUp.complete(result);
+                return;
+            } catch (RuntimeException exception) {
+                log.warn("Product cache warm-up failed, retrying in {} ms: {}", retryDelayMillis, exception.getMessage());
+            }
+            try {
+                Thread.sleep(retryDelayMillis);
+            } catch (InterruptedException exception) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
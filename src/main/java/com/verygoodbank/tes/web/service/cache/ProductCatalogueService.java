@@ -0,0 +1,264 @@
+package com.verygoodbank.tes.web.service.cache;
+
+import com.verygoodbank.tes.web.dto.CatalogueReloadResult;
+import com.verygoodbank.tes.web.dto.cache.Product;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Service;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import static com.verygoodbank.tes.web.utils.AppUtils.deleteFile;
+import static com.verygoodbank.tes.web.utils.CSVUtils.PRODUCT_HEADERS;
+import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvParser;
+import static java.lang.Long.parseLong;
+import static java.lang.System.nanoTime;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/**
+ * ProductCatalogueService loads the product catalogue from {@code products.catalogue.location}
+ * into the cache of {@link ProductCacheService} and reloads it incrementally.
+ *
+ * <p> The loaded catalogue is kept as a {@link ProductCatalogueSnapshot} together with the CRC32C checksum
+ * of the catalogue file. A reload with an unchanged checksum neither parses the catalogue nor writes to the cache.
+ * Otherwise the new snapshot is merged with the previous one by product id, so a reload writes only the products
+ * that were added or whose name has changed, in {@code putAll} batches of {@code products.catalogue.batch-size}
+ * products, and evicts the products that were removed from the catalogue with {@code evictAll} in batches
+ * of the same size.
+ * The first load has no snapshot to compare with, so it looks the catalogue products up in the cache in batches
+ * and writes only those that are missing or differ, which keeps the products untouched when another node
+ * has already loaded the same catalogue.
+ *
+ * <p> After a successful load the snapshot is written to {@code products.catalogue.snapshot}, and the first load
+ * after a restart memory-maps it instead of parsing the catalogue when the checksum of the catalogue still matches.
+ * A blank {@code products.catalogue.snapshot} keeps the snapshot in memory only.
+ *
+ * <p> Every load passes the loaded catalogue to the negative lookup cache of {@link ProductCacheService},
+ * which is seeded from it instead of the stored product ids.
+ *
+ * <p> Every load stamps the products it writes with a new generation from {@link ProductCacheService#nextGeneration()},
+ * which increases across all the nodes sharing the cache, the first load stamps all the catalogue
+ * products, and then removes the products of older generations, i.e. those cached by an older catalogue
+ * but absent from the current one, with {@link ProductCacheService#removeOlderGenerations(long)}.
+ */
+@Service
+public class ProductCatalogueService {
+    private static final Logger log = LoggerFactory.getLogger(ProductCatalogueService.class);
+
+    private final ProductCacheService productCacheService;
+    private final ResourceLoader resourceLoader;
+    private final String catalogueLocation;
+    private final int batchSize;
+    private final Path snapshotFile;
+    private volatile ProductCatalogueSnapshot snapshot;
+
+    public ProductCatalogueService(
+        ProductCacheService productCacheService,
+        ResourceLoader resourceLoader,
+        @Value("${products.catalogue.location:classpath:product.csv}") String catalogueLocation,
+        @Value("${products.catalogue.batch-size:1000}") int batchSize,
+        @Value("${products.catalogue.snapshot:}") String snapshotLocation
+    ) {
+        this.productCacheService = productCacheService;
+        this.resourceLoader = resourceLoader;
+        this.catalogueLocation = catalogueLocation;
+        this.batchSize = batchSize;
+        this.snapshotFile = snapshotLocation.isBlank() ? null : Path.of(snapshotLocation);
+    }
+
+    public Resource getCatalogueResource() {
+        return resourceLoader.getResource(catalogueLocation);
+    }
+
+    /**
+     * Returns the snapshot of the last loaded catalogue, or {@code null} before the first load.
+     */
+    public ProductCatalogueSnapshot getSnapshot() {
+        return snapshot;
+    }
+
+    public synchronized CatalogueReloadResult reload() {
+        long reloadStart = nanoTime();
+        long generation = productCacheService.nextGeneration();
+        CRC32C checksum = new CRC32C();
+        byte[] content = readCatalogue(checksum);
+        ProductCatalogueSnapshot previousSnapshot = snapshot;
+        if (previousSnapshot != null && previousSnapshot.getChecksum() == checksum.getValue()) {
+            return createResult(previousSnapshot, 0, 0, 0, reloadStart);
+        }
+        ProductCatalogueSnapshot catalogue = mapSnapshot(checksum.getValue());
+        boolean parsed = catalogue == null;
+        if (parsed) catalogue = ProductCatalogueSnapshot.of(checksum.getValue(), parseCatalogue(content));
+        CatalogueReloadResult result = previousSnapshot == null
+            ? loadChangedProducts(catalogue, generation, reloadStart)
+            : reloadChangedProducts(catalogue, previousSnapshot, generation, reloadStart);
+        snapshot = catalogue;
+        productCacheService.rebuildNegativeCache(catalogue);
+        if (parsed) writeSnapshot(catalogue);
+        return result;
+    }
+
+    private CatalogueReloadResult loadChangedProducts(ProductCatalogueSnapshot catalogue, long generation, long reloadStart) {
+        int added = 0;
+        int updated = 0;
+        Map<Long, Product> changedProducts = new HashMap<>();
+        for (int batchStart = 0; batchStart < catalogue.size(); batchStart += batchSize) {
+            int batchEnd = Math.min(batchStart + batchSize, catalogue.size());
+            Set<Long> batch = new HashSet<>();
+            for (int index = batchStart; index < batchEnd; index++) {
+                batch.add(catalogue.getProductId(index));
+            }
+            Map<Long, Product> cachedProducts = productCacheService.getAll(batch);
+            Set<Long> unchangedProductIds = new HashSet<>();
+            for (int index = batchStart; index < batchEnd; index++) {
+                long productId = catalogue.getProductId(index);
+                String productName = catalogue.getProductName(index);
+                Product cachedProduct = cachedProducts.get(productId);
+                if (cachedProduct == null) {
+                    added++;
+                } else if (!productName.equals(cachedProduct.getProductName())) {
+                    updated++;
+                } else {
+                    unchangedProductIds.add(productId);
+                    continue;
+                }
+                changedProducts.put(productId, new Product(productName));
+            }
+            if (!unchangedProductIds.isEmpty()) productCacheService.stampGeneration(unchangedProductIds, generation);
+            flushIfFull(changedProducts, generation);
+        }
+        flush(changedProducts, generation);
+        int removed = productCacheService.removeOlderGenerations(generation);
+        return createResult(catalogue, added, updated, removed, reloadStart);
+    }
+
+    private CatalogueReloadResult reloadChangedProducts(
+        ProductCatalogueSnapshot catalogue, ProductCatalogueSnapshot previousSnapshot, long generation, long reloadStart
+    ) {
+        int added = 0;
+        int updated = 0;
+        int removed = 0;
+        Map<Long, Product> changedProducts = new HashMap<>();
+        Set<Long> removedProductIds = new HashSet<>();
+        int index = 0;
+        int previousIndex = 0;
+        while (index < catalogue.size() || previousIndex < previousSnapshot.size()) {
+            long productId = index < catalogue.size() ? catalogue.getProductId(index) : Long.MAX_VALUE;
+            long previousProductId = previousIndex < previousSnapshot.size()
+                ? previousSnapshot.getProductId(previousIndex) : Long.MAX_VALUE;
+            if (index < catalogue.size() && (previousIndex == previousSnapshot.size() || productId < previousProductId)) {
+                added++;
+            } else if (index == catalogue.size() || productId > previousProductId) {
+                removedProductIds.add(previousProductId);
+                evictIfFull(removedProductIds);
+                removed++;
+                previousIndex++;
+                continue;
+            } else if (!catalogue.hasSameProductName(index, previousSnapshot, previousIndex++)) {
+                updated++;
+            } else {
+                index++;
+                continue;
+            }
+            changedProducts.put(productId, new Product(catalogue.getProductName(index++)));
+            flushIfFull(changedProducts, generation);
+        }
+        flush(changedProducts, generation);
+        evict(removedProductIds);
+        return createResult(catalogue, added, updated, removed, reloadStart);
+    }
+
+    private CatalogueReloadResult createResult(
+        ProductCatalogueSnapshot catalogue, int added, int updated, int removed, long reloadStart
+    ) {
+        return new CatalogueReloadResult(
+            added, updated, removed, catalogue.size() - added - updated, NANOSECONDS.toMillis(nanoTime() - reloadStart)
+        );
+    }
+
+    private void flushIfFull(Map<Long, Product> changedProducts, long generation) {
+        if (changedProducts.size() >= batchSize) flush(changedProducts, generation);
+    }
+
+    private void flush(Map<Long, Product> changedProducts, long generation) {
+        if (changedProducts.isEmpty()) return;
+        productCacheService.putAll(changedProducts);
+        productCacheService.stampGeneration(changedProducts.keySet(), generation);
+        changedProducts.clear();
+    }
+
+    private void evictIfFull(Set<Long> removedProductIds) {
+        if (removedProductIds.size() >= batchSize) evict(removedProductIds);
+    }
+
+    private void evict(Set<Long> removedProductIds) {
+        if (removedProductIds.isEmpty()) return;
+        productCacheService.evictAll(removedProductIds);
+        removedProductIds.clear();
+    }
+
+    private byte[] readCatalogue(CRC32C checksum) {
+        try (InputStream inputStream = new CheckedInputStream(getCatalogueResource().getInputStream(), checksum)) {
+            return inputStream.readAllBytes();
+        } catch (IOException exception) {
+            throw new RuntimeException("An error occurred during product catalogue reading " + catalogueLocation, exception);
+        }
+    }
+
+    private Map<Long, String> parseCatalogue(byte[] content) {
+        Map<Long, String> catalogue = new LinkedHashMap<>();
+        try (CSVParser csvParser = getCsvParser(new ByteArrayInputStream(content), PRODUCT_HEADERS)) {
+            for (CSVRecord csvRecord : csvParser) {
+                catalogue.put(parseLong(csvRecord.get("product_id")), csvRecord.get("product_name"));
+            }
+        } catch (IOException | RuntimeException exception) {
+            throw new RuntimeException("An error occurred during product catalogue reading " + catalogueLocation, exception);
+        }
+        return catalogue;
+    }
+
+    private ProductCatalogueSnapshot mapSnapshot(long checksum) {
+        if (snapshotFile == null || snapshot != null) return null;
+        try {
+            ProductCatalogueSnapshot mappedSnapshot = ProductCatalogueSnapshot.map(snapshotFile);
+            return mappedSnapshot.getChecksum() == checksum ? mappedSnapshot : null;
+        } catch (NoSuchFileException exception) {
+            return null;
+        } catch (IOException | RuntimeException exception) {
+            log.warn("An error occurred during product catalogue snapshot mapping {}", snapshotFile, exception);
+            return null;
+        }
+    }
+
+    private void writeSnapshot(ProductCatalogueSnapshot catalogue) {
+        if (snapshotFile == null) return;
+        Path temporaryFile = null;
+        try {
+            Path directory = snapshotFile.toAbsolutePath().getParent();
+            Files.createDirectories(directory);
+            temporaryFile = Files.createTempFile(directory, snapshotFile.getFileName().toString(), ".tmp");
+            catalogue.writeTo(temporaryFile);
+            Files.move(temporaryFile, snapshotFile, ATOMIC_MOVE, REPLACE_EXISTING);
+        } catch (IOException | RuntimeException exception) {
+            log.warn("An error occurred during product catalogue snapshot writing {}", snapshotFile, exception);
+            if (temporaryFile != null) deleteFile(temporaryFile);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.verygoodbank.tes.web.service.cache;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * ProductCatalogueSnapshot is a compact binary form of the product catalogue, which is read straight
+ * from a memory-mapped file or a heap buffer without parsing or building objects per product.
+ *
+ * <p> The snapshot consists of a header of the magic {@code PCS1} as an {@code int}, the checksum of the
+ * catalogue file it was built from as a {@code long} and the number of products as an {@code int},
+ * followed by the product ids as ascending {@code long} values, the offsets of the product names
+ * as {@code int} values, one more than there are products, and the blob of the UTF-8 encoded product names.
+ * Two snapshots are compared by merging their ids in order, without decoding the product names.
+ */
+public class ProductCatalogueSnapshot {
+    private static final int MAGIC = 0x50435331;
+    private static final int HEADER_SIZE = Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+    private final ByteBuffer buffer;
+    private final long checksum;
+    private final int size;
+    private final int offsetsStart;
+    private final int namesStart;
+
+    private ProductCatalogueSnapshot(ByteBuffer buffer) {
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IllegalArgumentException("The buffer does not contain a product catalogue snapshot");
+        }
+        this.buffer = buffer;
+        this.checksum = buffer.getLong(Integer.BYTES);
+        this.size = buffer.getInt(Integer.BYTES + Long.BYTES);
+        this.offsetsStart = HEADER_SIZE + size * Long.BYTES;
+        this.namesStart = offsetsStart + (size + 1) * Integer.BYTES;
+        if (namesStart > buffer.capacity() || namesStart + getNameOffset(size) != buffer.capacity()) {
+            throw new IllegalArgumentException("The product catalogue snapshot is truncated");
+        }
+    }
+
+    public static ProductCatalogueSnapshot of(long checksum, Map<Long, String> catalogue) {
+        return new ProductCatalogueSnapshot(encode(checksum, catalogue));
+    }
+
+    public static ProductCatalogueSnapshot map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, READ)) {
+            return new ProductCatalogueSnapshot(channel.map(READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    public void writeTo(Path file) throws IOException {
+        ByteBuffer snapshot = buffer.duplicate().clear();
+        try (FileChannel channel = FileChannel.open(file, CREATE, TRUNCATE_EXISTING, WRITE)) {
+            while (snapshot.hasRemaining()) {
+                channel.write(snapshot);
+            }
+        }
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getProductId(int index) {
+        return buffer.getLong(HEADER_SIZE + index * Long.BYTES);
+    }
+
+    public String getProductName(int index) {
+        int start = getNameOffset(index);
+        byte[] name = new byte[getNameOffset(index + 1) - start];
+        buffer.get(namesStart + start, name);
+        return new String(name, UTF_8);
+    }
+
+    /**
+     * Compares the name of the product at {@code index} with the name of the product at {@code otherIndex}
+     * of the other snapshot byte by byte, without decoding them.
+     */
+    public boolean hasSameProductName(int index, ProductCatalogueSnapshot other, int otherIndex) {
+        int start = namesStart + getNameOffset(index);
+        int length = namesStart + getNameOffset(index + 1) - start;
+        int otherStart = other.namesStart + other.getNameOffset(otherIndex);
+        int otherLength = other.namesStart + other.getNameOffset(otherIndex + 1) - otherStart;
+        return length == otherLength && buffer.slice(start, length).equals(other.buffer.slice(otherStart, otherLength));
+    }
+
+    private int getNameOffset(int index) {
+        return buffer.getInt(offsetsStart + index * Integer.BYTES);
+    }
+
+    private static ByteBuffer encode(long checksum, Map<Long, String> catalogue) {
+        long[] productIds = new long[catalogue.size()];
+        int index = 0;
+        for (Long productId : catalogue.keySet()) {
+            productIds[index++] = productId;
+        }
+        Arrays.sort(productIds);
+        byte[][] names = new byte[productIds.length][];
+        long namesSize = 0;
+        for (index = 0; index < productIds.length; index++) {
+            names[index] = catalogue.get(productIds[index]).getBytes(UTF_8);
+            namesSize += names[index].length;
+        }
+        long snapshotSize = HEADER_SIZE + (long) productIds.length * Long.BYTES
+            + (productIds.length + 1L) * Integer.BYTES + namesSize;
+        if (snapshotSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("The product catalogue is too large for a snapshot: " + snapshotSize + " bytes");
+        }
+        ByteBuffer snapshot = ByteBuffer.allocate((int) snapshotSize);
+        snapshot.putInt(MAGIC)
+            .putLong(checksum)
+            .putInt(productIds.length);
+        for (long productId : productIds) {
+            snapshot.putLong(productId);
+        }
+        int nameOffset = 0;
+        snapshot.putInt(nameOffset);
+        for (byte[] name : names) {
+            nameOffset += name.length;
+            snapshot.putInt(nameOffset);
+        }
+        for (byte[] name : names) {
+            snapshot.put(name);
+        }
+        return snapshot.flip();
+    }
+}
@@ -0,0 +1,62 @@
+package com.verygoodbank.tes.web.service.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ProductIdBloomFilter is a Bloom filter over product ids: {@link #mightContain(long)} never returns
+ * {@code false} for an added id and returns {@code true} for an id that was not added with roughly
+ * the false positive probability the filter was sized for, as long as no more ids are added than expected.
+ *
+ * <p> Ids are added and tested concurrently without locking, the bits are kept in an {@link AtomicLongArray}.
+ */
+public class ProductIdBloomFilter {
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    public ProductIdBloomFilter(int expectedIds, double falsePositiveProbability) {
+        if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1) {
+            throw new IllegalArgumentException("The false positive probability must be between 0 and 1");
+        }
+        int ids = Math.max(expectedIds, 1);
+        long optimalBitCount = (long) Math.ceil(-ids * Math.log(falsePositiveProbability) / (Math.log(2) * Math.log(2)));
+        int words = (int) Math.min((optimalBitCount + Long.SIZE - 1) / Long.SIZE, Integer.MAX_VALUE - 8);
+        this.bits = new AtomicLongArray(Math.max(words, 1));
+        this.bitCount = (long) bits.length() * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / ids * Math.log(2)));
+    }
+
+    public void add(long productId) {
+        long firstHash = mix(productId);
+        long secondHash = mix(firstHash) | 1;
+        for (int index = 1; index <= hashCount; index++) {
+            long bit = bitIndex(firstHash + index * secondHash);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long value = bits.get(word);
+            while ((value & mask) == 0 && !bits.weakCompareAndSetVolatile(word, value, value | mask)) {
+                value = bits.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(long productId) {
+        long firstHash = mix(productId);
+        long secondHash = mix(firstHash) | 1;
+        for (int index = 1; index <= hashCount; index++) {
+            long bit = bitIndex(firstHash + index * secondHash);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) return false;
+        }
+        return true;
+    }
+
+    private long bitIndex(long combinedHash) {
+        return Math.floorMod(combinedHash, bitCount);
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xff51afd7ed558ccdL;
+        value = (value ^ (value >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return value ^ (value >>> 33);
+    }
+}
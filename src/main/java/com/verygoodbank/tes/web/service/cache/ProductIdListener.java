@@ -0,0 +1,14 @@
+package com.verygoodbank.tes.web.service.cache;
+
+/**
+ * ProductIdListener is notified by a {@link ProductStore} about products written to the store by any node,
+ * so that {@link ProductNegativeCache} learns about them without waiting for a catalogue load on this node.
+ *
+ * <p> {@link #productIdsLost()} is called when notifications may have been missed, e.g. while the client
+ * was disconnected from the cluster, after which no product id may be assumed missing until the next rebuild.
+ */
+public interface ProductIdListener {
+    void productAdded(long productId);
+
+    void productIdsLost();
+}
@@ -0,0 +1,152 @@
+package com.verygoodbank.tes.web.service.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import static java.lang.System.nanoTime;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+/**
+ * ProductNegativeCache answers lookups of unknown product ids locally, so that they do not
+ * cost a round trip to the product store.
+ *
+ * <p> A {@link ProductIdBloomFilter} over the ids of all stored products is updated with the ids of products
+ * written by this node and, as a {@link ProductIdListener}, of products the store reports as added by any node,
+ * so an id that is not in the filter is not in the store.
+ * The filter is first built from the catalogue this node has loaded, together with the product ids added
+ * since the start, as the load removes the stored products absent from the catalogue, so the stored product ids
+ * are not read at all. They are read only when the filter has to be rebuilt after the store reported that
+ * added product ids may have been lost, or when the catalogue has grown beyond the size of the filter.
+ * Products added while the filter is rebuilt are added to the new filter as well.
+ * The filter is sized with {@code products.negative-cache.false-positive-probability} and is absent until
+ * the first rebuild and after the store reports that added product ids may have been lost, when every id that is not
+ * remembered as missing has to be looked up in the store.
+ *
+ * <p> Ids that pass the filter but are missing from the store are remembered for
+ * {@code products.negative-cache.time-to-live-millis}, at most {@code products.negative-cache.max-size} of them,
+ * and forgotten as soon as they are written to the store by any node.
+ */
+@Component
+public class ProductNegativeCache implements ProductIdListener {
+    private final boolean enabled;
+    private final long timeToLiveNanos;
+    private final int maxSize;
+    private final double falsePositiveProbability;
+    private final Map<Long, Long> misses = new ConcurrentHashMap<>();
+    private final Object rebuildLock = new Object();
+    private volatile ProductIdBloomFilter knownProductIds;
+    private int expectedProductIds;
+    private boolean seedable = true;
+    private Set<Long> productIdsAddedDuringRebuild = new HashSet<>();
+    private boolean productIdsLostDuringRebuild;
+
+    public ProductNegativeCache(
+        @Value("${products.negative-cache.enabled:true}") boolean enabled,
+        @Value("${products.negative-cache.time-to-live-millis:1000}") long timeToLiveMillis,
+        @Value("${products.negative-cache.max-size:100000}") int maxSize,
+        @Value("${products.negative-cache.false-positive-probability:0.01}") double falsePositiveProbability
+    ) {
+        this.enabled = enabled;
+        this.timeToLiveNanos = MILLISECONDS.toNanos(timeToLiveMillis);
+        this.maxSize = maxSize;
+        this.falsePositiveProbability = falsePositiveProbability;
+    }
+
+    public boolean isKnownMissing(long productId) {
+        if (!enabled) return false;
+        ProductIdBloomFilter productIds = knownProductIds;
+        if (productIds != null && !productIds.mightContain(productId)) return true;
+        Long missExpiry = misses.get(productId);
+        if (missExpiry == null) return false;
+        if (nanoTime() - missExpiry < 0) return true;
+        misses.remove(productId, missExpiry);
+        return false;
+    }
+
+    public void recordMiss(long productId) {
+        if (!enabled || timeToLiveNanos <= 0 || maxSize <= 0) return;
+        if (misses.size() >= maxSize) removeExpiredMisses();
+        if (misses.size() >= maxSize) misses.clear();
+        misses.put(productId, nanoTime() + timeToLiveNanos);
+    }
+
+    public synchronized void recordKnown(Collection<Long> productIds) {
+        if (!enabled) return;
+        ProductIdBloomFilter currentProductIds = knownProductIds;
+        for (Long productId : productIds) {
+            if (currentProductIds != null) currentProductIds.add(productId);
+            if (productIdsAddedDuringRebuild != null) productIdsAddedDuringRebuild.add(productId);
+            misses.remove(productId);
+        }
+    }
+
+    @Override
+    public void productAdded(long productId) {
+        recordKnown(Set.of(productId));
+    }
+
+    @Override
+    public synchronized void productIdsLost() {
+        knownProductIds = null;
+        seedable = false;
+        if (productIdsAddedDuringRebuild != null) productIdsLostDuringRebuild = true;
+    }
+
+    /**
+     * Builds the filter for the loaded catalogue unless the current one already covers it.
+     * The first filter is seeded from the catalogue and the product ids added since the start,
+     * any later one from the ids of all stored products. Products added while the filter is built
+     * are added to the new filter, and the new filter is discarded when added product ids are lost meanwhile.
+     */
+    public void rebuild(ProductCatalogueSnapshot catalogue, Supplier<? extends Collection<Long>> storedProductIds) {
+        if (!enabled) return;
+        synchronized (rebuildLock) {
+            boolean seeded;
+            synchronized (this) {
+                if (knownProductIds != null && catalogue.size() <= expectedProductIds) return;
+                seeded = seedable;
+                if (!seeded) productIdsAddedDuringRebuild = new HashSet<>();
+                productIdsLostDuringRebuild = false;
+            }
+            try {
+                ProductIdBloomFilter rebuiltProductIds;
+                int rebuiltSize;
+                if (seeded) {
+                    rebuiltSize = catalogue.size();
+                    rebuiltProductIds = new ProductIdBloomFilter(rebuiltSize, falsePositiveProbability);
+                    for (int index = 0; index < catalogue.size(); index++) {
+                        rebuiltProductIds.add(catalogue.getProductId(index));
+                    }
+                } else {
+                    Collection<Long> productIds = storedProductIds.get();
+                    rebuiltSize = Math.max(productIds.size(), catalogue.size());
+                    rebuiltProductIds = new ProductIdBloomFilter(rebuiltSize, falsePositiveProbability);
+                    productIds.forEach(rebuiltProductIds::add);
+                }
+                synchronized (this) {
+                    productIdsAddedDuringRebuild.forEach(rebuiltProductIds::add);
+                    if (!productIdsLostDuringRebuild) {
+                        knownProductIds = rebuiltProductIds;
+                        expectedProductIds = rebuiltSize;
+                    }
+                    seedable = false;
+                    misses.clear();
+                }
+            } finally {
+                synchronized (this) {
+                    if (!seedable) productIdsAddedDuringRebuild = null;
+                }
+            }
+        }
+    }
+
+    private void removeExpiredMisses() {
+        long now = nanoTime();
+        misses.values().removeIf(missExpiry -> now - missExpiry >= 0);
+    }
+}
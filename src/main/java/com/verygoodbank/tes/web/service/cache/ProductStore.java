@@ -0,0 +1,62 @@
+package com.verygoodbank.tes.web.service.cache;
+
+import com.verygoodbank.tes.web.dto.cache.Product;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * ProductStore is the storage backend used by {@link ProductCacheService} to keep products by their ids.
+ * The backend is selected by the {@code products.store} property:
+ * {@code hazelcast} (default) for the distributed {@link HazelcastProductStore}
+ * or {@code local} for the in-process {@link LocalProductStore}.
+ *
+ * <p> Implementations report through {@link #isLocal()} whether lookups are served in-process,
+ * in which case batching lookups gives no benefit and callers may look products up one by one.
+ *
+ * <p> {@link #getAllAsync(Set)} starts a batched lookup without waiting for it, so the caller can go on
+ * with other work; stores without asynchronous lookups complete it with {@link #getAll(Set)} on the calling thread.
+ *
+ * <p> {@link #getProductIds()} returns the ids of all stored products, which is expensive for remote stores
+ * and only needed when {@link ProductNegativeCache} cannot be seeded from the loaded catalogue,
+ * and stores shared by several nodes notify
+ * the {@link ProductIdListener} set with {@link #setProductIdListener(ProductIdListener)} about products written
+ * by any of them.
+ *
+ * <p> Every product is stamped with the generation of the catalogue load that last confirmed it.
+ * Generations are drawn from {@link #nextGeneration()}, which increases across all the nodes sharing the store,
+ * and stamping never lowers the generation of a product.
+ * {@link #removeOlderGenerations(long)} removes the products of older generations without
+ * transferring the other products to the caller, and {@link #evict(long)} and {@link #evictAll(Set)}
+ * also drop the generations of the evicted products.
+ */
+public interface ProductStore {
+    void put(long productId, Product product);
+
+    void putAll(Map<Long, Product> products);
+
+    Product get(long productId);
+
+    Map<Long, Product> getAll(Set<Long> productIds);
+
+    default CompletableFuture<Map<Long, Product>> getAllAsync(Set<Long> productIds) {
+        return CompletableFuture.completedFuture(getAll(productIds));
+    }
+
+    Set<Long> getProductIds();
+
+    default void setProductIdListener(ProductIdListener productIdListener) {
+    }
+
+    void evict(long productId);
+
+    void evictAll(Set<Long> productIds);
+
+    long nextGeneration();
+
+    void stampGeneration(Set<Long> productIds, long generation);
+
+    int removeOlderGenerations(long generation);
+
+    boolean isLocal();
+}
@@ -1,14 +1,10 @@
 package com.verygoodbank.tes.web.utils;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import java.io.IOException;
-import java.nio.channels.FileChannel;
-import java.nio.channels.FileLock;
 import java.nio.file.Path;
-import static java.nio.channels.FileChannel.open;
-import static java.nio.file.Files.delete;
-import static java.nio.file.Files.isDirectory;
-import static java.nio.file.Files.isWritable;
-import static java.nio.file.StandardOpenOption.WRITE;
+import static java.nio.file.Files.deleteIfExists;
 
 /**
  * AppUtils is a utility class providing static methods and constants for various common operations
@@ -16,45 +12,18 @@ import static java.nio.file.StandardOpenOption.WRITE;
  * are reusable across different parts of the application.
  */
 public class AppUtils {
-    public static final String DIRECTORY_TO_CLEAN = "./";
+    private static final Logger log = LoggerFactory.getLogger(AppUtils.class);
     public static final String CSV_CONTENT_TYPE = "text/csv";
+    public static final String COLUMNAR_CONTENT_TYPE = "application/vnd.verygoodbank.trades.columnar";
     public static final String COMMA = ",";
 
     public static void deleteFile(Path file) {
         try {
-            if (isWritable(file) && !isDirectory(file) && !isFileLocked(file)) {
-                delete(file);
-            } else {
-                System.err.print(
-                    "Skipped deleting file (not writable, is directory or is locked by another process): "
-                        + file.getFileName()
-                );
-            }
+            deleteIfExists(file);
         } catch (IOException exception) {
-            System.err.println(
-                "An error occurred during cleaning file with path " + file.getFileName() + exception.getMessage()
+            log.error(
+                "An error occurred during cleaning file with path {}: {}", file.getFileName(), exception.getMessage()
             );
         }
     }
-
-    public static boolean isFileLocked(Path path) {
-        try (FileChannel channel = open(path, WRITE)) {
-            FileLock lock = channel.tryLock();
-            if (lock != null) {
-                lock.release();
-                return false;
-            }
-        } catch (IOException exception) {
-            System.err.println(
-                "An error occurred during acquire lock for file " + path.getFileName() + " " + exception.getMessage()
-            );
-        }
-        return true;
-    }
-
-    public static boolean isFileNameStartsWith(Path file, String prefix) {
-        return file.getFileName()
-            .toString()
-            .startsWith(prefix);
-    }
 }
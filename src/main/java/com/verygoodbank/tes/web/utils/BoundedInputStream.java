@@ -0,0 +1,50 @@
+package com.verygoodbank.tes.web.utils;
+
+import org.springframework.web.server.ResponseStatusException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+
+/**
+ * BoundedInputStream fails with {@code 413 Payload Too Large} as soon as more than {@code maxBytes} bytes
+ * are read from the wrapped {@link InputStream}, so an oversized upload is rejected without being read
+ * to the end. A negative {@code maxBytes} disables the limit.
+ */
+public class BoundedInputStream extends FilterInputStream {
+    private final long maxBytes;
+    private long count;
+
+    public BoundedInputStream(InputStream inputStream, long maxBytes) {
+        super(inputStream);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int value = super.read();
+        if (value >= 0) count(1);
+        return value;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int read = super.read(bytes, offset, length);
+        if (read > 0) count(read);
+        return read;
+    }
+
+    @Override
+    public long skip(long length) throws IOException {
+        long skipped = super.skip(length);
+        count(skipped);
+        return skipped;
+    }
+
+    private void count(long bytes) {
+        count += bytes;
+        if (maxBytes >= 0 && count > maxBytes) {
+            throw new ResponseStatusException(PAYLOAD_TOO_LARGE, "The trade file exceeds the limit of " + maxBytes + " bytes");
+        }
+    }
+}
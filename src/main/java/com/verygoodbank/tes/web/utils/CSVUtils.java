@@ -5,11 +5,10 @@ import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVPrinter;
 import org.apache.commons.csv.CSVRecord;
 import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileWriter;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.Reader;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.apache.commons.csv.CSVFormat.DEFAULT;
 
@@ -18,7 +17,9 @@ import static org.apache.commons.csv.CSVFormat.DEFAULT;
  * This class is designed to assist in reading and writing CSV data, commonly used in data interchange and storage.
  * It offers methods to read CSV data from
  * an {@link InputStream}, create a {@link CSVParser} for CSV parsing,
- * and create a {@link CSVPrinter} for CSV writing.
+ * and create a {@link CSVPrinter} for CSV writing into an {@link Appendable}.
+ * Parsers over a {@link Reader} and printers don't skip or print a header record
+ * and are meant for parts of a CSV file, such as the chunks processed in parallel during enrichment.
  */
 public class CSVUtils {
     public static String[] PRODUCT_HEADERS = { "product_id", "product_name" };
@@ -33,6 +34,17 @@ public class CSVUtils {
         }
     }
 
+    public static CSVParser getCsvParser(Reader reader, String[] headers) {
+        try {
+            CSVFormat csvFormat = DEFAULT.builder()
+                .setHeader(headers)
+                .build();
+            return new CSVParser(reader, csvFormat);
+        } catch (IOException exception) {
+            throw new RuntimeException("An error occurred during csv parser creating ", exception);
+        }
+    }
+
     public static CSVParser getCsvParser(InputStream inputStream, String[] headers) {
         try {
             BufferedReader fileReader = new BufferedReader(new InputStreamReader(inputStream, UTF_8));
@@ -46,13 +58,9 @@ public class CSVUtils {
         }
     }
 
-    public static CSVPrinter getCsvPrinter(File file, String[] headers) {
+    public static CSVPrinter getCsvPrinter(Appendable out) {
         try {
-            FileWriter writer = new FileWriter(file);
-            CSVFormat csvFormat = DEFAULT.builder()
-                .setHeader(headers)
-                .build();
-            return new CSVPrinter(writer, csvFormat);
+            return new CSVPrinter(out, DEFAULT);
         } catch (IOException exception) {
             throw new RuntimeException("An error occurred during csv printer creating ", exception);
         }
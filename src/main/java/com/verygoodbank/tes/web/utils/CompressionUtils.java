@@ -0,0 +1,89 @@
+package com.verygoodbank.tes.web.utils;
+
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import static java.nio.file.Files.newInputStream;
+import static org.springframework.http.HttpStatus.UNSUPPORTED_MEDIA_TYPE;
+
+/**
+ * CompressionUtils is a utility class providing static methods to read gzip-compressed trade files
+ * and to write gzip-compressed enriched trades according to the {@code Content-Encoding}
+ * and {@code Accept-Encoding} HTTP headers.
+ * The compressed output is flushed on every flush of the enriched trades, so each enriched chunk
+ * is compressed and sent as soon as it is written rather than after the whole file is enriched.
+ */
+public class CompressionUtils {
+    public static final String GZIP = "gzip";
+    private static final String IDENTITY = "identity";
+    private static final int BUFFER_SIZE = 65536;
+
+    public static boolean isGzipEncoded(String contentEncoding) {
+        if (contentEncoding == null || contentEncoding.isBlank() || IDENTITY.equalsIgnoreCase(contentEncoding.trim())) {
+            return false;
+        }
+        if (GZIP.equalsIgnoreCase(contentEncoding.trim())) return true;
+        throw new ResponseStatusException(UNSUPPORTED_MEDIA_TYPE, "Unsupported content encoding " + contentEncoding);
+    }
+
+    public static boolean isGzipFile(MultipartFile file) {
+        String fileName = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        return fileName != null && fileName.toLowerCase().endsWith(".gz")
+            || "application/gzip".equalsIgnoreCase(contentType)
+            || "application/x-gzip".equalsIgnoreCase(contentType);
+    }
+
+    public static boolean isGzipAccepted(String acceptEncoding) {
+        if (acceptEncoding == null) return false;
+        for (String encoding : acceptEncoding.split(",")) {
+            String[] parameters = encoding.split(";");
+            String coding = parameters[0].trim();
+            if ((GZIP.equalsIgnoreCase(coding) || "*".equals(coding)) && !isRejected(parameters)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static InputStream openInputStream(MultipartFile file) throws IOException {
+        InputStream inputStream = file.getInputStream();
+        return isGzipFile(file) ? decompress(inputStream) : inputStream;
+    }
+
+    /**
+     * Opens a stored upload, decompressing it when {@link #isGzipFile(MultipartFile)} held for the upload,
+     * which has to be decided when the upload is stored, as the stored file keeps neither its name nor its type.
+     */
+    public static InputStream openInputStream(Path file, boolean gzipFile) throws IOException {
+        InputStream inputStream = newInputStream(file);
+        return gzipFile ? decompress(inputStream) : inputStream;
+    }
+
+    public static InputStream decompress(InputStream inputStream) throws IOException {
+        return new GZIPInputStream(inputStream, BUFFER_SIZE);
+    }
+
+    public static OutputStream compress(OutputStream outputStream) throws IOException {
+        return new GZIPOutputStream(outputStream, BUFFER_SIZE, true);
+    }
+
+    private static boolean isRejected(String[] parameters) {
+        for (int index = 1; index < parameters.length; index++) {
+            String parameter = parameters[index].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2)) <= 0;
+                } catch (NumberFormatException exception) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,123 @@
+package com.verygoodbank.tes.web.utils;
+
+import org.springframework.web.server.ResponseStatusException;
+import java.io.IOException;
+import java.io.InputStream;
+import static java.lang.System.arraycopy;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static java.util.Arrays.copyOf;
+
+/**
+ * CsvChunkReader splits CSV content read from an {@link InputStream} into chunks of complete lines,
+ * so that every chunk can be parsed independently of the others.
+ * The first line of the content is treated as the header record and is skipped.
+ *
+ * <p> Chunks are returned as raw UTF-8 bytes: a line break byte never occurs inside a multi-byte
+ * UTF-8 sequence, so lines can be split without decoding the content.
+ * Both a line feed and a carriage return end a line, so a chunk may end between the two bytes of a
+ * {@code \r\n} pair and the next one start with an empty line.
+ * A chunk holds at least {@code chunkSize} bytes, unless it is the last chunk of the content,
+ * and always ends at a line break.
+ * Records are split at every line break, so a quoted value containing one is rejected by {@link TradeCsvTokenizer}.
+ *
+ * <p> A line longer than {@code maxRecordLength} bytes, {@code DEFAULT_MAX_RECORD_LENGTH} unless given,
+ * is rejected with {@code 400 Bad Request} as soon as that many bytes are buffered without a line break,
+ * so content without line breaks is not buffered without bound.
+ */
+public class CsvChunkReader {
+    public static final int DEFAULT_MAX_RECORD_LENGTH = 1 << 20;
+    private static final byte LINE_BREAK = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private final InputStream inputStream;
+    private final int chunkSize;
+    private final int maxRecordLength;
+    private byte[] pending;
+    private int pendingLength;
+    private boolean headerSkipped;
+    private boolean endOfStream;
+
+    public CsvChunkReader(InputStream inputStream, int chunkSize) {
+        this(inputStream, chunkSize, DEFAULT_MAX_RECORD_LENGTH);
+    }
+
+    public CsvChunkReader(InputStream inputStream, int chunkSize, int maxRecordLength) {
+        this.inputStream = inputStream;
+        this.chunkSize = chunkSize;
+        this.maxRecordLength = maxRecordLength;
+        this.pending = new byte[chunkSize * 2];
+    }
+
+    /**
+     * Reads the next chunk of complete lines.
+     *
+     * @return the next chunk, or {@code null} when the content is exhausted
+     */
+    public byte[] nextChunk() throws IOException {
+        while (!endOfStream) {
+            ensureCapacity(pendingLength + chunkSize);
+            int read = inputStream.read(pending, pendingLength, chunkSize);
+            if (read < 0) {
+                endOfStream = true;
+                break;
+            }
+            pendingLength += read;
+            if (!headerSkipped && !skipHeader()) {
+                checkRecordLength(pendingLength);
+                continue;
+            }
+            if (pendingLength >= chunkSize) {
+                int lastLineBreak = lastIndexOfLineBreak();
+                if (lastLineBreak >= 0) return takePending(lastLineBreak + 1);
+                checkRecordLength(pendingLength);
+            }
+        }
+        if (!headerSkipped) {
+            headerSkipped = true;
+            pendingLength = 0;
+        }
+        return pendingLength == 0 ? null : takePending(pendingLength);
+    }
+
+    private boolean skipHeader() {
+        for (int index = 0; index < pendingLength; index++) {
+            if (isLineBreak(pending[index])) {
+                takePending(index + 1);
+                headerSkipped = true;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private int lastIndexOfLineBreak() {
+        for (int index = pendingLength - 1; index >= 0; index--) {
+            if (isLineBreak(pending[index])) return index;
+        }
+        return -1;
+    }
+
+    private static boolean isLineBreak(byte current) {
+        return current == LINE_BREAK || current == CARRIAGE_RETURN;
+    }
+
+    private void checkRecordLength(int recordLength) {
+        if (recordLength > maxRecordLength) {
+            throw new ResponseStatusException(
+                BAD_REQUEST, "A trade record exceeds the limit of " + maxRecordLength + " bytes without a line break"
+            );
+        }
+    }
+
+    private byte[] takePending(int length) {
+        byte[] chunk = copyOf(pending, length);
+        arraycopy(pending, length, pending, 0, pendingLength - length);
+        pendingLength -= length;
+        return chunk;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (pending.length < capacity) {
+            pending = copyOf(pending, Math.max(capacity, pending.length * 2));
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.verygoodbank.tes.web.utils;
+
+import static java.util.Arrays.fill;
+
+/**
+ * LongObjectHashMap is an open-addressing hash map keyed by primitive {@code long} values.
+ * Keys are kept in a {@code long[]} table with linear probing, so lookups neither box the key
+ * nor allocate, which makes the map suitable for per-row lookups in hot paths.
+ *
+ * <p> The key {@code 0} is used to mark free slots and is therefore stored separately.
+ * Removal uses backward-shift deletion, so the table never contains tombstones.
+ *
+ * <p> The map is not thread-safe; callers are responsible for guarding concurrent access.
+ *
+ * @param <V> the type of mapped values
+ */
+public class LongObjectHashMap<V> {
+    private static final int DEFAULT_CAPACITY = 16;
+    private static final float LOAD_FACTOR = 0.5f;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+    private boolean hasZeroKey;
+    private V zeroKeyValue;
+
+    public LongObjectHashMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    public V get(long key) {
+        if (key == 0) return zeroKeyValue;
+        long[] keys = this.keys;
+        int index = indexOf(key);
+        long existing;
+        while ((existing = keys[index]) != 0) {
+            if (existing == key) return valueAt(index);
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(long key) {
+        if (key == 0) return hasZeroKey;
+        int index = indexOf(key);
+        long existing;
+        while ((existing = keys[index]) != 0) {
+            if (existing == key) return true;
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public V put(long key, V value) {
+        if (key == 0) {
+            V previous = zeroKeyValue;
+            if (!hasZeroKey) size++;
+            hasZeroKey = true;
+            zeroKeyValue = value;
+            return previous;
+        }
+        int index = indexOf(key);
+        long existing;
+        while ((existing = keys[index]) != 0) {
+            if (existing == key) {
+                V previous = valueAt(index);
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        if (++size > resizeThreshold) resize();
+        return null;
+    }
+
+    public V remove(long key) {
+        if (key == 0) {
+            V previous = zeroKeyValue;
+            if (hasZeroKey) size--;
+            hasZeroKey = false;
+            zeroKeyValue = null;
+            return previous;
+        }
+        int index = indexOf(key);
+        long existing;
+        while ((existing = keys[index]) != 0) {
+            if (existing == key) {
+                V previous = valueAt(index);
+                shiftKeysBack(index);
+                size--;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        fill(keys, 0);
+        fill(values, null);
+        hasZeroKey = false;
+        zeroKeyValue = null;
+        size = 0;
+    }
+
+    public void forEach(LongObjectConsumer<? super V> consumer) {
+        if (hasZeroKey) consumer.accept(0, zeroKeyValue);
+        for (int index = 0; index < keys.length; index++) {
+            if (keys[index] != 0) consumer.accept(keys[index], valueAt(index));
+        }
+    }
+
+    private void shiftKeysBack(int freedIndex) {
+        int index = freedIndex;
+        while (true) {
+            index = (index + 1) & mask;
+            long key = keys[index];
+            if (key == 0) break;
+            int idealIndex = indexOf(key);
+            if (((index - idealIndex) & mask) >= ((index - freedIndex) & mask)) {
+                keys[freedIndex] = key;
+                values[freedIndex] = values[index];
+                freedIndex = index;
+            }
+        }
+        keys[freedIndex] = 0;
+        values[freedIndex] = null;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        for (int oldIndex = 0; oldIndex < oldKeys.length; oldIndex++) {
+            long key = oldKeys[oldIndex];
+            if (key == 0) continue;
+            int index = indexOf(key);
+            while (keys[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = oldValues[oldIndex];
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int indexOf(long key) {
+        return (int) ((key * GOLDEN_RATIO) >>> 32) & mask;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V valueAt(int index) {
+        return (V) values[index];
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity * LOAD_FACTOR < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Consumer of map entries that receives the key as a primitive {@code long}.
+     *
+     * @param <V> the type of mapped values
+     */
+    @FunctionalInterface
+    public interface LongObjectConsumer<V> {
+        void accept(long key, V value);
+    }
+}
@@ -0,0 +1,77 @@
+package com.verygoodbank.tes.web.utils;
+
+import org.slf4j.Logger;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * RateLimitedLogger passes at most {@code maxMessagesPerSecond} messages per second to the wrapped
+ * {@link Logger} and drops the rest, so that a flood of bad input can not saturate the log appender.
+ * The number of dropped messages is reported by the first message of the next second.
+ *
+ * <p> Messages below the enabled level of the wrapped logger are neither counted nor formatted,
+ * and the single-argument overloads, including one for a primitive {@code long}, do not allocate for them.
+ */
+public class RateLimitedLogger {
+    private static final long WINDOW_NANOS = 1_000_000_000L;
+
+    private final Logger logger;
+    private final int maxMessagesPerSecond;
+    private final LongSupplier nanoClock;
+    private final AtomicLong windowStart;
+    private final AtomicInteger messagesInWindow = new AtomicInteger();
+    private final AtomicInteger suppressedMessages = new AtomicInteger();
+
+    public RateLimitedLogger(Logger logger, int maxMessagesPerSecond) {
+        this(logger, maxMessagesPerSecond, System::nanoTime);
+    }
+
+    public RateLimitedLogger(Logger logger, int maxMessagesPerSecond, LongSupplier nanoClock) {
+        this.logger = logger;
+        this.maxMessagesPerSecond = maxMessagesPerSecond;
+        this.nanoClock = nanoClock;
+        this.windowStart = new AtomicLong(nanoClock.getAsLong());
+    }
+
+    public void debug(String format, long argument) {
+        if (logger.isDebugEnabled() && tryAcquire()) logger.debug(format, argument);
+    }
+
+    public void debug(String format, Object argument) {
+        if (logger.isDebugEnabled() && tryAcquire()) logger.debug(format, argument);
+    }
+
+    public void debug(String format, Object... arguments) {
+        if (logger.isDebugEnabled() && tryAcquire()) logger.debug(format, arguments);
+    }
+
+    public void warn(String format, Object argument) {
+        if (logger.isWarnEnabled() && tryAcquire()) logger.warn(format, argument);
+    }
+
+    public void warn(String format, Object... arguments) {
+        if (logger.isWarnEnabled() && tryAcquire()) logger.warn(format, arguments);
+    }
+
+    public void error(String format, Object argument) {
+        if (logger.isErrorEnabled() && tryAcquire()) logger.error(format, argument);
+    }
+
+    public void error(String format, Object... arguments) {
+        if (logger.isErrorEnabled() && tryAcquire()) logger.error(format, arguments);
+    }
+
+    private boolean tryAcquire() {
+        long now = nanoClock.getAsLong();
+        long start = windowStart.get();
+        if (now - start >= WINDOW_NANOS && windowStart.compareAndSet(start, now)) {
+            messagesInWindow.set(0);
+            int suppressed = suppressedMessages.getAndSet(0);
+            if (suppressed > 0) logger.warn("{} log messages were suppressed by the rate limit", suppressed);
+        }
+        if (messagesInWindow.incrementAndGet() <= maxMessagesPerSecond) return true;
+        suppressedMessages.incrementAndGet();
+        return false;
+    }
+}
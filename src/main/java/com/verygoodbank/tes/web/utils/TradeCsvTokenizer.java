@@ -0,0 +1,224 @@
+package com.verygoodbank.tes.web.utils;
+
+import com.verygoodbank.tes.web.dto.TradeRow;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Iterator;
+import static com.verygoodbank.tes.web.utils.CSVUtils.TRADE_IN_HEADERS;
+import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvParser;
+import static java.lang.Double.parseDouble;
+import static java.lang.Long.parseLong;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * TradeCsvTokenizer is a specialized parser for the trade input format {@code date,product_id,currency,price}.
+ * It reads records straight from UTF-8 bytes, such as the chunks produced by {@link CsvChunkReader},
+ * into a reused {@link TradeRow}.
+ *
+ * <p> The product id and the price are parsed directly from the bytes without creating intermediate strings.
+ * Plain decimal prices whose digits, read as a long mantissa, do not exceed 2<sup>53</sup> (up to 16 digits)
+ * and which have at most 22 fraction digits are computed as the mantissa divided by a power of ten.
+ * Both operands are then exact doubles, so the single division yields the same correctly rounded value
+ * as {@link Double#parseDouble(String)}; other prices, such as those with an exponent, fall back to it.
+ * Consecutive records usually share the date and the currency, so the string of the previous record
+ * is reused when the bytes are equal.
+ *
+ * <p> Lines end at a line feed, a carriage return or both, as in commons-csv.
+ * Lines containing a quote character are handed over to commons-csv, so quoted and escaped values
+ * are read exactly as by {@link CSVUtils#getCsvParser}, except that a quoted value may not contain a line break:
+ * chunks are split at every line break, so a line whose quotes are not balanced is rejected.
+ * Empty lines are skipped, and records with fewer than four values are rejected as by commons-csv.
+ */
+public class TradeCsvTokenizer {
+    private static final byte LINE_BREAK = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+    private static final byte DELIMITER = ',';
+    private static final byte QUOTE = '"';
+    private static final int TRADE_VALUES = 4;
+    private static final int MAX_LONG_DIGITS = 18;
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final byte[] bytes;
+    private final int length;
+    private final int[] valueEnds = new int[TRADE_VALUES];
+    private int position;
+    private String lastDate;
+    private String lastCurrency;
+
+    public TradeCsvTokenizer(byte[] bytes) {
+        this(bytes, bytes.length);
+    }
+
+    public TradeCsvTokenizer(byte[] bytes, int length) {
+        this.bytes = bytes;
+        this.length = length;
+    }
+
+    /**
+     * Reads the next trade record into the given row.
+     *
+     * @return {@code false} when there are no more records
+     * @throws NumberFormatException if the product id or the price is not a number
+     * @throws IllegalArgumentException if the record has fewer than four values or a quoted value is not closed
+     *                                  on its line
+     */
+    public boolean next(TradeRow row) {
+        while (position < length) {
+            int lineStart = position;
+            int lineEnd = indexOfLineBreak(lineStart);
+            position = lineEnd + 1;
+            if (lineEnd == lineStart) continue;
+            if (readValues(lineStart, lineEnd)) {
+                readRecord(row, lineStart);
+            } else {
+                readQuotedRecord(row, lineStart, lineEnd);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private int indexOfLineBreak(int from) {
+        for (int index = from; index < length; index++) {
+            if (bytes[index] == LINE_BREAK || bytes[index] == CARRIAGE_RETURN) return index;
+        }
+        return length;
+    }
+
+    private boolean readValues(int start, int end) {
+        int values = 0;
+        for (int index = start; index < end; index++) {
+            byte current = bytes[index];
+            if (current == QUOTE) return false;
+            if (current == DELIMITER && values < TRADE_VALUES - 1) valueEnds[values++] = index;
+        }
+        if (values < TRADE_VALUES - 1) {
+            throw new IllegalArgumentException(
+                "Trade record has " + (values + 1) + " values, but " + TRADE_VALUES + " are expected"
+            );
+        }
+        valueEnds[values] = indexOfDelimiter(valueEnds[values - 1] + 1, end);
+        return true;
+    }
+
+    private int indexOfDelimiter(int from, int end) {
+        for (int index = from; index < end; index++) {
+            if (bytes[index] == DELIMITER) return index;
+        }
+        return end;
+    }
+
+    private void readRecord(TradeRow row, int lineStart) {
+        int productIdStart = valueEnds[0] + 1;
+        int currencyStart = valueEnds[1] + 1;
+        int priceStart = valueEnds[2] + 1;
+        row.set(
+            readDate(lineStart, valueEnds[0]),
+            readLong(productIdStart, valueEnds[1]),
+            readCurrency(currencyStart, valueEnds[2]),
+            readDouble(priceStart, valueEnds[3])
+        );
+    }
+
+    private void readQuotedRecord(TradeRow row, int start, int end) {
+        if (!hasClosedQuotes(start, end)) {
+            throw new IllegalArgumentException("Trade record has a quoted value that is not closed on its line");
+        }
+        String line = new String(bytes, start, end - start, UTF_8);
+        try (CSVParser csvParser = getCsvParser(new StringReader(line), TRADE_IN_HEADERS)) {
+            Iterator<CSVRecord> records = csvParser.iterator();
+            if (!records.hasNext()) throw new IllegalArgumentException("Trade record is empty");
+            CSVRecord csvRecord = records.next();
+            row.set(
+                csvRecord.get("date"),
+                parseLong(csvRecord.get("product_id")),
+                csvRecord.get("currency"),
+                parseDouble(csvRecord.get("price"))
+            );
+        } catch (IOException exception) {
+            throw new RuntimeException("An error occurred during csv file parsing ", exception);
+        }
+    }
+
+    private boolean hasClosedQuotes(int start, int end) {
+        boolean quoted = false;
+        for (int index = start; index < end; index++) {
+            if (bytes[index] == QUOTE) quoted = !quoted;
+        }
+        return !quoted;
+    }
+
+    private String readDate(int start, int end) {
+        if (!equalsBytes(lastDate, start, end)) lastDate = new String(bytes, start, end - start, UTF_8);
+        return lastDate;
+    }
+
+    private String readCurrency(int start, int end) {
+        if (!equalsBytes(lastCurrency, start, end)) lastCurrency = new String(bytes, start, end - start, UTF_8);
+        return lastCurrency;
+    }
+
+    private boolean equalsBytes(String value, int start, int end) {
+        if (value == null || value.length() != end - start) return false;
+        for (int index = start; index < end; index++) {
+            if (value.charAt(index - start) != bytes[index]) return false;
+        }
+        return true;
+    }
+
+    private long readLong(int start, int end) {
+        int index = start;
+        boolean negative = false;
+        if (index < end && (bytes[index] == '-' || bytes[index] == '+')) {
+            negative = bytes[index] == '-';
+            index++;
+        }
+        if (index == end || end - index > MAX_LONG_DIGITS) return parseLong(asString(start, end));
+        long value = 0;
+        for (; index < end; index++) {
+            int digit = bytes[index] - '0';
+            if (digit < 0 || digit > 9) return parseLong(asString(start, end));
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    private double readDouble(int start, int end) {
+        int index = start;
+        boolean negative = false;
+        if (index < end && (bytes[index] == '-' || bytes[index] == '+')) {
+            negative = bytes[index] == '-';
+            index++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = -1;
+        for (; index < end; index++) {
+            byte current = bytes[index];
+            if (current == '.' && fractionDigits < 0) {
+                fractionDigits = 0;
+                continue;
+            }
+            int digit = current - '0';
+            if (digit < 0 || digit > 9 || ++digits > MAX_LONG_DIGITS) return parseDouble(asString(start, end));
+            mantissa = mantissa * 10 + digit;
+            if (fractionDigits >= 0) fractionDigits++;
+        }
+        int scale = Math.max(fractionDigits, 0);
+        if (digits == 0 || mantissa > MAX_EXACT_MANTISSA || scale >= POWERS_OF_TEN.length) {
+            return parseDouble(asString(start, end));
+        }
+        double value = mantissa / POWERS_OF_TEN[scale];
+        return negative ? -value : value;
+    }
+
+    private String asString(int start, int end) {
+        return new String(bytes, start, end - start, UTF_8);
+    }
+}
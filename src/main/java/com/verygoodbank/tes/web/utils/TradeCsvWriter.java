@@ -0,0 +1,64 @@
+package com.verygoodbank.tes.web.utils;
+
+import com.verygoodbank.tes.web.dto.Trade;
+import static com.verygoodbank.tes.web.utils.CSVUtils.TRADE_OUT_HEADERS;
+
+/**
+ * TradeCsvWriter appends enriched trades in the output format {@code date,product_name,currency,price}
+ * straight into a {@link StringBuilder}, without building intermediate strings or arrays per record.
+ *
+ * <p> Values are quoted following the same minimal quoting rules as {@link org.apache.commons.csv.CSVFormat#DEFAULT}:
+ * a value is enclosed in quotes when it contains a delimiter, a quote or a line break, starts with a character
+ * not greater than {@code '#'} or ends with a character not greater than a space, and quotes inside it are doubled.
+ * Records are terminated by {@code CRLF}, and the price is written exactly as by {@link Double#toString(double)}.
+ * {@link #HEADER} is the header record of the output.
+ */
+public class TradeCsvWriter {
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+    private static final char COMMENT = '#';
+    private static final char SPACE = ' ';
+    private static final String RECORD_SEPARATOR = "\r\n";
+    public static final String HEADER = String.join(String.valueOf(DELIMITER), TRADE_OUT_HEADERS) + RECORD_SEPARATOR;
+    private final StringBuilder out;
+
+    public TradeCsvWriter(StringBuilder out) {
+        this.out = out;
+    }
+
+    public void write(Trade trade) {
+        appendValue(trade.getDate(), true);
+        out.append(DELIMITER);
+        appendValue(trade.getProductName(), false);
+        out.append(DELIMITER);
+        appendValue(trade.getCurrency(), false);
+        out.append(DELIMITER)
+            .append(trade.getPrice())
+            .append(RECORD_SEPARATOR);
+    }
+
+    private void appendValue(String value, boolean firstInRecord) {
+        if (value == null) return;
+        if (!needsQuotes(value, firstInRecord)) {
+            out.append(value);
+            return;
+        }
+        out.append(QUOTE);
+        for (int index = 0; index < value.length(); index++) {
+            char current = value.charAt(index);
+            if (current == QUOTE) out.append(QUOTE);
+            out.append(current);
+        }
+        out.append(QUOTE);
+    }
+
+    private boolean needsQuotes(String value, boolean firstInRecord) {
+        if (value.isEmpty()) return firstInRecord;
+        if (value.charAt(0) <= COMMENT) return true;
+        for (int index = 0; index < value.length(); index++) {
+            char current = value.charAt(index);
+            if (current == DELIMITER || current == QUOTE || current == '\r' || current == '\n') return true;
+        }
+        return value.charAt(value.length() - 1) <= SPACE;
+    }
+}
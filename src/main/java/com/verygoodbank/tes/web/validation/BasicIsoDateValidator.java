@@ -0,0 +1,60 @@
+package com.verygoodbank.tes.web.validation;
+
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.temporal.TemporalAccessor;
+import static java.time.format.DateTimeFormatter.BASIC_ISO_DATE;
+
+/**
+ * BasicIsoDateValidator validates date strings in the {@code yyyyMMdd} format, accepting and rejecting
+ * exactly the same strings as {@link DateFormatValidator} configured with
+ * {@link java.time.format.DateTimeFormatter#BASIC_ISO_DATE}.
+ *
+ * <p> The digits, the month and day ranges and leap years are checked arithmetically, so validating
+ * neither allocates nor throws an exception.
+ * Only dates followed by an optional offset, such as {@code 20160101+0100}, are checked by parsing
+ * the offset with the formatter, and offsets out of range, such as {@code 20160101+2500}, are rejected
+ * instead of failing the validation with an exception.
+ */
+public class BasicIsoDateValidator {
+    private static final int DATE_LENGTH = 8;
+    private static final int[] DAYS_IN_MONTH = { 31, 28, 31, 30, 31, 30, 31, 31, 30, 31, 30, 31 };
+
+    public boolean isValid(CharSequence date) {
+        if (date == null || date.length() < DATE_LENGTH) return false;
+        int year = readNumber(date, 0, 4);
+        int month = readNumber(date, 4, 6);
+        int day = readNumber(date, 6, 8);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)) return false;
+        return date.length() == DATE_LENGTH || hasValidOffset(date);
+    }
+
+    private int readNumber(CharSequence date, int start, int end) {
+        int value = 0;
+        for (int index = start; index < end; index++) {
+            int digit = date.charAt(index) - '0';
+            if (digit < 0 || digit > 9) return -1;
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private int lengthOfMonth(int year, int month) {
+        if (month == 2 && isLeapYear(year)) return 29;
+        return DAYS_IN_MONTH[month - 1];
+    }
+
+    private boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    private boolean hasValidOffset(CharSequence date) {
+        ParsePosition position = new ParsePosition(0);
+        try {
+            TemporalAccessor parsed = BASIC_ISO_DATE.parseUnresolved(date, position);
+            return parsed != null && position.getErrorIndex() < 0 && position.getIndex() == date.length();
+        } catch (DateTimeException exception) {
+            return false;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.verygoodbank.tes.web.validation;
 
+import com.verygoodbank.tes.web.utils.RateLimitedLogger;
+import org.slf4j.LoggerFactory;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import static java.time.LocalDate.parse;
@@ -13,6 +15,9 @@ import static java.time.LocalDate.parse;
  * conforms to the format specified by the {@code DateTimeFormatter} provided at instantiation.
  */
 public class DateFormatValidator {
+    private static final RateLimitedLogger log = new RateLimitedLogger(
+        LoggerFactory.getLogger(DateFormatValidator.class), 100
+    );
     private final DateTimeFormatter dateFormatter;
 
     public DateFormatValidator(DateTimeFormatter dateFormatter) {
@@ -23,7 +28,7 @@ public class DateFormatValidator {
         try {
             parse(date, this.dateFormatter);
         } catch (DateTimeParseException exception) {
-            System.err.println("An error occurred during date parsing " + exception.getMessage());
+            log.debug("An error occurred during date parsing {}", exception.getMessage());
             return false;
         }
         return true;
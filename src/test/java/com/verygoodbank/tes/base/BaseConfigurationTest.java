@@ -4,16 +4,19 @@ import com.verygoodbank.tes.web.utils.AppUtils;
 import org.junit.jupiter.api.AfterEach;
 import java.nio.file.Path;
 import java.util.stream.Stream;
-import static com.verygoodbank.tes.web.utils.AppUtils.DIRECTORY_TO_CLEAN;
-import static com.verygoodbank.tes.web.utils.AppUtils.isFileNameStartsWith;
+import static java.lang.System.getProperty;
+import static java.nio.file.Files.exists;
 import static java.nio.file.Files.list;
 import static java.nio.file.Paths.get;
 
 public class BaseConfigurationTest {
+    private static final Path OUTPUT_DIRECTORY = get(getProperty("java.io.tmpdir"), "trade-enrichment-output");
+
     @AfterEach
     public void cleanUp() {
-        try (Stream<Path> files = list(get(DIRECTORY_TO_CLEAN))) {
-            files.filter(file -> isFileNameStartsWith(file, "trade-"))
+        if (!exists(OUTPUT_DIRECTORY)) return;
+        try (Stream<Path> files = list(OUTPUT_DIRECTORY)) {
+            files.filter(file -> file.getFileName().toString().startsWith("trade-"))
                 .forEach(AppUtils::deleteFile);
         } catch (Exception exception) {
             throw new RuntimeException("An error occurred during clearing of files after the tests: ", exception);
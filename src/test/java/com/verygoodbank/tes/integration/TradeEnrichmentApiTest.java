@@ -1,9 +1,12 @@
 package com.verygoodbank.tes.integration;
 
 import com.verygoodbank.tes.base.BaseConfigurationTest;
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import com.verygoodbank.tes.web.utils.TradeColumnarWriter;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
 import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
@@ -13,29 +16,52 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 import static com.verygoodbank.tes.utils.TestUtils.TREASURY_BILLS_DOMESTIC_PRODUCT_NAME;
+import static com.verygoodbank.tes.web.utils.AppUtils.COLUMNAR_CONTENT_TYPE;
 import static com.verygoodbank.tes.web.utils.AppUtils.CSV_CONTENT_TYPE;
 import static com.verygoodbank.tes.web.utils.CSVUtils.TRADE_OUT_HEADERS;
 import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvParser;
 import static java.nio.file.Files.readAllBytes;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
 import static org.springframework.http.MediaType.MULTIPART_FORM_DATA;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.util.ResourceUtils.getFile;
 
-@SpringBootTest
+@SpringBootTest(properties = "products.store=local")
 @AutoConfigureMockMvc
 public class TradeEnrichmentApiTest extends BaseConfigurationTest {
 
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ProductCacheWarmUp productCacheWarmUp;
+
+    @BeforeEach
+    public void awaitProductCache() throws Exception {
+        productCacheWarmUp.awaitReady(Duration.ofSeconds(30));
+    }
+
     private static MockMultipartFile mockFile;
     private static final String ENRICH_ENDPOINT = "/api/v1/enrich";
 
@@ -54,11 +80,26 @@ public class TradeEnrichmentApiTest extends BaseConfigurationTest {
         }
     }
 
+    private ResultActions performEnrichRequest(MockMultipartFile file) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(multipart(ENRICH_ENDPOINT)
+                    .file(file)
+                    .contentType(MULTIPART_FORM_DATA))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult));
+    }
+
+    @Test
+    public void readinessIncludesWarmProductCache() throws Exception {
+        mockMvc.perform(get("/actuator/health/readiness"))
+            .andExpect(status().isOk())
+            .andExpect(jsonPath("$.status").value("UP"))
+            .andExpect(jsonPath("$.components.productCache.status").value("UP"));
+    }
+
     @Test
     public void enrichTradeSuccessfullyTranslateFile() throws Exception {
-        mockMvc.perform(multipart(ENRICH_ENDPOINT)
-                    .file(mockFile)
-                    .contentType(MULTIPART_FORM_DATA))
+        performEnrichRequest(mockFile)
             .andExpect(status().isOk())
             .andExpect(content().contentType(CSV_CONTENT_TYPE));
     }
@@ -73,9 +114,7 @@ public class TradeEnrichmentApiTest extends BaseConfigurationTest {
     @Test
     public void enrichTradeReturnsValidContent() throws Exception {
         MockMultipartFile mockMultipartFile = loadFileAsMockMultipartFile("singleTrade.csv");
-        MockHttpServletResponse response = mockMvc.perform(multipart(ENRICH_ENDPOINT)
-                    .file(mockMultipartFile)
-                    .contentType(MULTIPART_FORM_DATA))
+        MockHttpServletResponse response = performEnrichRequest(mockMultipartFile)
             .andExpect(status().isOk())
             .andExpect(content().contentType(CSV_CONTENT_TYPE))
             .andReturn()
@@ -91,9 +130,7 @@ public class TradeEnrichmentApiTest extends BaseConfigurationTest {
 
     @Test
     public void enrichTradeReturnsValidContents() throws Exception {
-        MockHttpServletResponse response = mockMvc.perform(multipart(ENRICH_ENDPOINT)
-                    .file(mockFile)
-                    .contentType(MULTIPART_FORM_DATA))
+        MockHttpServletResponse response = performEnrichRequest(mockFile)
             .andExpect(status().isOk())
             .andExpect(content().contentType(CSV_CONTENT_TYPE))
             .andReturn()
@@ -107,13 +144,60 @@ public class TradeEnrichmentApiTest extends BaseConfigurationTest {
         }
     }
 
+    @Test
+    public void enrichTradeDecompressesGzipFileAndCompressesAcceptedResponse() throws Exception {
+        byte[] content = readAllBytes(getFile("classpath:trade.csv").toPath());
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(compressed)) {
+            gzipOutputStream.write(content);
+        }
+        MockMultipartFile gzipFile = new MockMultipartFile("file", "trade.csv.gz", "application/gzip", compressed.toByteArray());
+        MvcResult mvcResult = mockMvc.perform(multipart(ENRICH_ENDPOINT)
+                    .file(gzipFile)
+                    .header(ACCEPT_ENCODING, "gzip")
+                    .contentType(MULTIPART_FORM_DATA))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        MockHttpServletResponse response = mockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk())
+            .andExpect(header().string(CONTENT_ENCODING, "gzip"))
+            .andReturn()
+            .getResponse();
+
+        InputStream inputStream = new GZIPInputStream(new ByteArrayInputStream(response.getContentAsByteArray()));
+        try (CSVParser parser = getCsvParser(inputStream, TRADE_OUT_HEADERS)) {
+            assertThat(parser.getRecords(), hasSize(4));
+        }
+    }
+
+    @Test
+    public void enrichTradeReturnsColumnarContentWhenAccepted() throws Exception {
+        MvcResult mvcResult = mockMvc.perform(multipart(ENRICH_ENDPOINT)
+                    .file(mockFile)
+                    .accept(COLUMNAR_CONTENT_TYPE)
+                    .contentType(MULTIPART_FORM_DATA))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        byte[] content = mockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(COLUMNAR_CONTENT_TYPE))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+
+        ByteBuffer buffer = ByteBuffer.wrap(content);
+        byte[] header = new byte[TradeColumnarWriter.HEADER.length];
+        buffer.get(header);
+        assertThat(header, is(equalTo(TradeColumnarWriter.HEADER)));
+        assertThat(buffer.getInt(), is(equalTo(4)));
+        assertThat(ByteBuffer.wrap(content, content.length - Integer.BYTES, Integer.BYTES).getInt(), is(equalTo(0)));
+    }
+
     @ParameterizedTest
     @ValueSource(strings = {"invalidTrade.csv", "emptyTrade.csv", "emptyFile.csv"})
     public void enrichTradeHasEmptyTradesIfThereIsInvalidRequestTrades(String fileName) throws Exception {
         MockMultipartFile mockMultipartFile = loadFileAsMockMultipartFile(fileName);
-        MockHttpServletResponse response = mockMvc.perform(multipart(ENRICH_ENDPOINT)
-                    .file(mockMultipartFile)
-                    .contentType(MULTIPART_FORM_DATA))
+        MockHttpServletResponse response = performEnrichRequest(mockMultipartFile)
             .andExpect(status().isOk())
             .andExpect(content().contentType(CSV_CONTENT_TYPE))
             .andReturn()
@@ -0,0 +1,164 @@
+package com.verygoodbank.tes.integration;
+
+import com.verygoodbank.tes.base.BaseConfigurationTest;
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import org.apache.commons.csv.CSVParser;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+import static com.verygoodbank.tes.web.utils.AppUtils.CSV_CONTENT_TYPE;
+import static com.verygoodbank.tes.web.utils.CSVUtils.TRADE_OUT_HEADERS;
+import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvParser;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.util.ResourceUtils.getFile;
+
+@SpringBootTest(properties = {
+    "products.store=local",
+    "trades.enrichment.chunk-size=64",
+    "trades.enrichment.max-request-bytes=4096",
+    "trades.enrichment.max-rows=8"
+})
+@AutoConfigureMockMvc
+public class TradeEnrichmentBodyApiTest extends BaseConfigurationTest {
+    private static final String ENRICH_ENDPOINT = "/api/v1/enrich";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductCacheWarmUp productCacheWarmUp;
+
+    @BeforeEach
+    public void awaitProductCache() throws Exception {
+        productCacheWarmUp.awaitReady(Duration.ofSeconds(30));
+    }
+
+    private ResultActions performEnrichRequest(MockHttpServletRequestBuilder requestBuilder) throws Exception {
+        MvcResult mvcResult = mockMvc.perform(requestBuilder)
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        return mockMvc.perform(asyncDispatch(mvcResult));
+    }
+
+    private static byte[] loadFile(String filename) throws Exception {
+        return readAllBytes(getFile("classpath:" + filename).toPath());
+    }
+
+    private static byte[] gzip(byte[] content) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(content);
+        }
+        return outputStream.toByteArray();
+    }
+
+    private static int countRecords(MockHttpServletResponse response) throws Exception {
+        InputStream inputStream = new ByteArrayInputStream(response.getContentAsByteArray());
+        try (CSVParser parser = getCsvParser(inputStream, TRADE_OUT_HEADERS)) {
+            return parser.getRecords().size();
+        }
+    }
+
+    private static byte[] createTrades(int rows) {
+        StringBuilder trades = new StringBuilder("date,product_id,currency,price\n");
+        for (int row = 0; row < rows; row++) {
+            trades.append("20160101,1,EUR,10.0\n");
+        }
+        return trades.toString().getBytes(UTF_8);
+    }
+
+    @Test
+    public void enrichTradeBodyReturnsEnrichedTrades() throws Exception {
+        MockHttpServletResponse response = performEnrichRequest(post(ENRICH_ENDPOINT)
+                    .contentType(CSV_CONTENT_TYPE)
+                    .content(loadFile("trade.csv")))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(CSV_CONTENT_TYPE))
+            .andReturn()
+            .getResponse();
+
+        assertThat(countRecords(response), is(equalTo(4)));
+    }
+
+    @Test
+    public void enrichTradeBodyDecompressesGzipBody() throws Exception {
+        MockHttpServletResponse response = performEnrichRequest(post(ENRICH_ENDPOINT)
+                    .contentType(CSV_CONTENT_TYPE)
+                    .header(CONTENT_ENCODING, "gzip")
+                    .content(gzip(loadFile("trade.csv"))))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse();
+
+        assertThat(countRecords(response), is(equalTo(4)));
+    }
+
+    @Test
+    public void enrichTradeBodyRejectsUnsupportedEncoding() throws Exception {
+        mockMvc.perform(post(ENRICH_ENDPOINT)
+                    .contentType(CSV_CONTENT_TYPE)
+                    .header(CONTENT_ENCODING, "br")
+                    .content(loadFile("trade.csv")))
+            .andExpect(status().isUnsupportedMediaType());
+    }
+
+    @Test
+    public void enrichTradeBodyRejectsTooLargeContentLength() throws Exception {
+        mockMvc.perform(post(ENRICH_ENDPOINT)
+                    .contentType(CSV_CONTENT_TYPE)
+                    .content(createTrades(400)))
+            .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    public void enrichTradeBodyAbortsTooLargeGzipBody() throws Exception {
+        Object asyncResult = mockMvc.perform(post(ENRICH_ENDPOINT)
+                    .contentType(CSV_CONTENT_TYPE)
+                    .header(CONTENT_ENCODING, "gzip")
+                    .content(gzip(createTrades(400))))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+            .getAsyncResult();
+
+        assertThat(asyncResult, is(instanceOf(ResponseStatusException.class)));
+        assertThat(((ResponseStatusException) asyncResult).getStatusCode(), is(equalTo(PAYLOAD_TOO_LARGE)));
+    }
+
+    @Test
+    public void enrichTradeBodyAbortsTooManyRows() throws Exception {
+        Object asyncResult = mockMvc.perform(post(ENRICH_ENDPOINT)
+                    .contentType(CSV_CONTENT_TYPE)
+                    .content(createTrades(20)))
+            .andExpect(request().asyncStarted())
+            .andReturn()
+            .getAsyncResult();
+
+        assertThat(asyncResult, is(not(instanceOf(ResponseStatusException.class))));
+        Throwable cause = ((Throwable) asyncResult).getCause();
+        assertThat(cause, is(instanceOf(ResponseStatusException.class)));
+        assertThat(((ResponseStatusException) cause).getReason(), containsString("8 rows"));
+    }
+}
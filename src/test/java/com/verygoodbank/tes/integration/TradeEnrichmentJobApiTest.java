@@ -0,0 +1,154 @@
+package com.verygoodbank.tes.integration;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.verygoodbank.tes.base.BaseConfigurationTest;
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import jakarta.servlet.MultipartConfigElement;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.util.unit.DataSize;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.List;
+import static com.verygoodbank.tes.utils.TestUtils.TREASURY_BILLS_DOMESTIC_PRODUCT_NAME;
+import static com.verygoodbank.tes.web.utils.AppUtils.CSV_CONTENT_TYPE;
+import static com.verygoodbank.tes.web.utils.CSVUtils.TRADE_OUT_HEADERS;
+import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvParser;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.compress;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.readAllBytes;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static org.springframework.util.ResourceUtils.getFile;
+
+@SpringBootTest(properties = {"products.store=local", "trades.jobs.directory=target/trade-enrichment-jobs"})
+@AutoConfigureMockMvc
+public class TradeEnrichmentJobApiTest extends BaseConfigurationTest {
+    private static final String JOBS_ENDPOINT = "/api/v1/enrich/jobs";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ProductCacheWarmUp productCacheWarmUp;
+
+    @BeforeEach
+    public void awaitProductCache() throws Exception {
+        productCacheWarmUp.awaitReady(Duration.ofSeconds(30));
+    }
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private MultipartConfigElement multipartConfig;
+
+    @Value("${trades.upload.max-size}")
+    private DataSize maxUploadSize;
+
+    private String submitJob(String fileName) throws Exception {
+        return submitJob(fileName, readAllBytes(getFile("classpath:" + fileName).toPath()));
+    }
+
+    private String submitJob(String fileName, byte[] content) throws Exception {
+        MockHttpServletResponse response = mockMvc.perform(multipart(JOBS_ENDPOINT)
+                    .file(new MockMultipartFile("file", fileName, CSV_CONTENT_TYPE, content)))
+            .andExpect(status().isAccepted())
+            .andExpect(header().string("Location", startsWith(JOBS_ENDPOINT + "/")))
+            .andReturn()
+            .getResponse();
+        return objectMapper.readTree(response.getContentAsString()).get("id").asText();
+    }
+
+    private JsonNode awaitJob(String jobId) throws Exception {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            String response = mockMvc.perform(get(JOBS_ENDPOINT + "/" + jobId))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+            JsonNode job = objectMapper.readTree(response);
+            String status = job.get("status").asText();
+            if ("COMPLETED".equals(status) || "FAILED".equals(status)) return job;
+            Thread.sleep(50);
+        }
+        throw new AssertionError("Enrichment job " + jobId + " has not finished in time");
+    }
+
+    @Test
+    public void enrichmentJobReportsProgressAndStreamsResult() throws Exception {
+        String jobId = submitJob("singleTrade.csv");
+
+        JsonNode job = awaitJob(jobId);
+        assertThat(job.get("status").asText(), is(equalTo("COMPLETED")));
+        assertThat(job.get("processedRows").asLong(), is(1L));
+
+        MvcResult mvcResult = mockMvc.perform(get(JOBS_ENDPOINT + "/" + jobId + "/result"))
+            .andExpect(request().asyncStarted())
+            .andReturn();
+        byte[] result = mockMvc.perform(asyncDispatch(mvcResult))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(CSV_CONTENT_TYPE))
+            .andReturn()
+            .getResponse()
+            .getContentAsByteArray();
+        try (CSVParser parser = getCsvParser(new ByteArrayInputStream(result), TRADE_OUT_HEADERS)) {
+            List<CSVRecord> records = parser.getRecords();
+            assertThat(records, hasSize(1));
+            assertThat(records.get(0).get("product_name"), is(equalTo(TREASURY_BILLS_DOMESTIC_PRODUCT_NAME)));
+        }
+    }
+
+    @Test
+    public void enrichmentJobDecompressesGzipFile() throws Exception {
+        ByteArrayOutputStream compressedTrades = new ByteArrayOutputStream();
+        try (OutputStream outputStream = compress(compressedTrades)) {
+            outputStream.write(readAllBytes(getFile("classpath:trade.csv").toPath()));
+        }
+        String jobId = submitJob("trade.csv.gz", compressedTrades.toByteArray());
+
+        JsonNode job = awaitJob(jobId);
+
+        assertThat(job.get("status").asText(), is(equalTo("COMPLETED")));
+        assertThat(job.get("processedRows").asLong(), is(greaterThan(1L)));
+    }
+
+    @Test
+    public void enrichmentJobReturnsNotFoundForUnknownJob() throws Exception {
+        mockMvc.perform(get(JOBS_ENDPOINT + "/unknown"))
+            .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void enrichmentJobRequiresFile() throws Exception {
+        mockMvc.perform(multipart(JOBS_ENDPOINT).content("".getBytes(UTF_8)))
+            .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void multipartUploadsShouldBeLimitedToConfiguredSize() {
+        assertThat(maxUploadSize, is(equalTo(DataSize.ofGigabytes(4))));
+        assertThat(multipartConfig.getMaxFileSize(), is(equalTo(maxUploadSize.toBytes())));
+        assertThat(multipartConfig.getMaxRequestSize(), is(equalTo(maxUploadSize.toBytes())));
+    }
+}
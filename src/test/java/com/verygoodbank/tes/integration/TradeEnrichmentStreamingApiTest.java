@@ -0,0 +1,134 @@
+package com.verygoodbank.tes.integration;
+
+import com.verygoodbank.tes.base.BaseConfigurationTest;
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.client.RestClientException;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.zip.GZIPOutputStream;
+import static com.verygoodbank.tes.web.utils.AppUtils.CSV_CONTENT_TYPE;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpHeaders.ACCEPT_ENCODING;
+import static org.springframework.http.HttpHeaders.CONTENT_ENCODING;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA;
+
+/**
+ * Runs the streamed enrichment on a real server, with one chunk in flight, so the response is committed
+ * after the first chunk and a later failure, including a request limit reached only then,
+ * can only be reported by aborting the response.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "products.store=local",
+    "trades.enrichment.chunk-size=64",
+    "trades.enrichment.chunks-in-flight=1",
+    "trades.enrichment.max-request-bytes=65536",
+    "trades.enrichment.max-rows=500"
+})
+public class TradeEnrichmentStreamingApiTest extends BaseConfigurationTest {
+    private static final String ENRICH_ENDPOINT = "/api/v1/enrich";
+    private static final int ROWS = 2000;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ProductCacheWarmUp productCacheWarmUp;
+
+    @BeforeEach
+    public void awaitProductCache() throws Exception {
+        productCacheWarmUp.awaitReady(Duration.ofSeconds(30));
+    }
+
+    private static String createTrades(int rows) {
+        return createTrades(rows, "EUR");
+    }
+
+    private static String createTrades(int rows, String currency) {
+        StringBuilder trades = new StringBuilder("date,product_id,currency,price\n");
+        for (int row = 0; row < rows; row++) {
+            trades.append("20160101,1,").append(currency).append(",10.0\n");
+        }
+        return trades.toString();
+    }
+
+    private static byte[] gzip(String content) throws IOException {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream)) {
+            gzipOutputStream.write(content.getBytes(UTF_8));
+        }
+        return outputStream.toByteArray();
+    }
+
+    private ResponseEntity<byte[]> postBody(byte[] trades, boolean gzipEncoded) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.valueOf(CSV_CONTENT_TYPE));
+        headers.set(ACCEPT_ENCODING, "gzip");
+        if (gzipEncoded) headers.set(CONTENT_ENCODING, "gzip");
+        return restTemplate.postForEntity(ENRICH_ENDPOINT, new HttpEntity<>(trades, headers), byte[].class);
+    }
+
+    private ResponseEntity<byte[]> postFile(String trades) {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("file", new ByteArrayResource(trades.getBytes(UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "trades.csv";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MULTIPART_FORM_DATA);
+        return restTemplate.postForEntity(ENRICH_ENDPOINT, new HttpEntity<>(parts, headers), byte[].class);
+    }
+
+    @Test
+    public void enrichTradeDataStreamsWholeFile() {
+        ResponseEntity<byte[]> response = postFile(createTrades(ROWS));
+
+        assertThat(response.getStatusCode().is2xxSuccessful(), is(true));
+        assertThat(new String(response.getBody(), UTF_8).split("\n").length, is(equalTo(ROWS + 1)));
+    }
+
+    @Test
+    public void enrichTradeDataAbortsResponseWhenLaterChunkFails() {
+        RestClientException exception = assertThrows(
+            RestClientException.class, () -> postFile(createTrades(ROWS) + "20160101,1,EUR,ten\n")
+        );
+
+        assertThat(exception.getMostSpecificCause(), is(instanceOf(IOException.class)));
+    }
+
+    @Test
+    public void enrichTradeBodyAbortsResponseWhenRowLimitIsReachedAfterCommit() {
+        RestClientException exception = assertThrows(
+            RestClientException.class, () -> postBody(createTrades(1000).getBytes(UTF_8), false)
+        );
+
+        assertThat(exception.getMostSpecificCause(), is(instanceOf(IOException.class)));
+    }
+
+    @Test
+    public void enrichTradeBodyAbortsResponseWhenByteLimitIsReachedAfterCommit() throws Exception {
+        byte[] trades = gzip(createTrades(250, "EUR" + " ".repeat(300)));
+
+        RestClientException exception = assertThrows(RestClientException.class, () -> postBody(trades, true));
+
+        assertThat(exception.getMostSpecificCause(), is(instanceOf(IOException.class)));
+    }
+}
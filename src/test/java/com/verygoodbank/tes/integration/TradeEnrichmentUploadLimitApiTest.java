@@ -0,0 +1,82 @@
+package com.verygoodbank.tes.integration;
+
+import com.verygoodbank.tes.base.BaseConfigurationTest;
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+import java.time.Duration;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.springframework.boot.test.context.SpringBootTest.WebEnvironment.RANDOM_PORT;
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.PAYLOAD_TOO_LARGE;
+import static org.springframework.http.MediaType.MULTIPART_FORM_DATA;
+
+/**
+ * Uploads trade files to a real server with a small {@code trades.upload.max-size}, as the multipart limits
+ * are enforced by the servlet container and not by MockMvc.
+ */
+@SpringBootTest(webEnvironment = RANDOM_PORT, properties = {
+    "products.store=local",
+    "trades.upload.max-size=4KB",
+    "trades.jobs.directory=target/trade-enrichment-jobs"
+})
+public class TradeEnrichmentUploadLimitApiTest extends BaseConfigurationTest {
+    private static final String JOBS_ENDPOINT = "/api/v1/enrich/jobs";
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private ProductCacheWarmUp productCacheWarmUp;
+
+    @BeforeEach
+    public void awaitProductCache() throws Exception {
+        productCacheWarmUp.awaitReady(Duration.ofSeconds(30));
+    }
+
+    private static String createTrades(int rows) {
+        StringBuilder trades = new StringBuilder("date,product_id,currency,price\n");
+        for (int row = 0; row < rows; row++) {
+            trades.append("20160101,1,EUR,10.0\n");
+        }
+        return trades.toString();
+    }
+
+    private ResponseEntity<String> submitJob(String trades) {
+        MultiValueMap<String, Object> parts = new LinkedMultiValueMap<>();
+        parts.add("file", new ByteArrayResource(trades.getBytes(UTF_8)) {
+            @Override
+            public String getFilename() {
+                return "trades.csv";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MULTIPART_FORM_DATA);
+        return restTemplate.postForEntity(JOBS_ENDPOINT, new HttpEntity<>(parts, headers), String.class);
+    }
+
+    @Test
+    public void uploadWithinLimitShouldBeAccepted() {
+        ResponseEntity<String> response = submitJob(createTrades(10));
+
+        assertThat(response.getStatusCode(), is(ACCEPTED));
+    }
+
+    @Test
+    public void uploadOverLimitShouldBeRejected() {
+        ResponseEntity<String> response = submitJob(createTrades(1000));
+
+        assertThat(response.getStatusCode(), is(PAYLOAD_TOO_LARGE));
+    }
+}
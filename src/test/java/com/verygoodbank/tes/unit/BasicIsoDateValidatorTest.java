@@ -0,0 +1,54 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.validation.BasicIsoDateValidator;
+import com.verygoodbank.tes.web.validation.DateFormatValidator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.util.Random;
+import static java.time.format.DateTimeFormatter.BASIC_ISO_DATE;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class BasicIsoDateValidatorTest {
+    private final BasicIsoDateValidator validator = new BasicIsoDateValidator();
+    private final DateFormatValidator referenceValidator = new DateFormatValidator(BASIC_ISO_DATE);
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "20160101", "20160229", "20150229", "19000229", "20000229", "00000229", "20161301", "20160001",
+        "20160100", "20160431", "20160430", "99991231", "2016", "20160", "2016010", "201601011", "2016-01-01",
+        "2016010a", " 2016010", "20160101Z", "20160101+01", "20160101+0100", "20160101-0130", "20160101+1900",
+        "20160101+01:00", "20160101+010", "20160101+2500", "20160101+0060", "20160101x", "", "٢٠١٦٠١٠١"
+    })
+    void validatorShouldAcceptSameDatesAsFormatter(String date) {
+        assertThat(validator.isValid(date), is(equalTo(referenceValidator.isValid(date))));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "20160101+2500", "20160101+0060" })
+    void validatorShouldRejectOffsetsOutOfRange(String date) {
+        assertThat(validator.isValid(date), is(false));
+    }
+
+    @Test
+    void validatorShouldAcceptSameDatesAsFormatterForEveryDayOfLeapCycle() {
+        for (int year = 1996; year <= 2004; year++) {
+            for (int month = 0; month <= 13; month++) {
+                for (int day = 0; day <= 32; day++) {
+                    String date = String.format("%04d%02d%02d", year, month, day);
+                    assertThat(date, validator.isValid(date), is(equalTo(referenceValidator.isValid(date))));
+                }
+            }
+        }
+    }
+
+    @Test
+    void validatorShouldAcceptSameDatesAsFormatterForRandomDigits() {
+        Random random = new Random(11);
+        for (int attempt = 0; attempt < 10_000; attempt++) {
+            String date = String.format("%08d", random.nextInt(100_000_000));
+            assertThat(date, validator.isValid(date), is(equalTo(referenceValidator.isValid(date))));
+        }
+    }
+}
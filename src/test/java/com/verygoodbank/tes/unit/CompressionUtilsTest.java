@@ -0,0 +1,64 @@
+package com.verygoodbank.tes.unit;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.compress;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.decompress;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.isGzipAccepted;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.isGzipEncoded;
+import static com.verygoodbank.tes.web.utils.CompressionUtils.isGzipFile;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CompressionUtilsTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {"gzip", "deflate, gzip", "gzip;q=0.5, br", "*", "GZIP"})
+    void isGzipAcceptedShouldAcceptGzip(String acceptEncoding) {
+        assertThat(isGzipAccepted(acceptEncoding), is(true));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "identity", "br, deflate", "gzip;q=0", "*;q=0.0"})
+    void isGzipAcceptedShouldNotAcceptGzip(String acceptEncoding) {
+        assertThat(isGzipAccepted(acceptEncoding), is(false));
+    }
+
+    @Test
+    void isGzipEncodedShouldRejectUnsupportedEncoding() {
+        assertThat(isGzipEncoded(null), is(false));
+        assertThat(isGzipEncoded("identity"), is(false));
+        assertThat(isGzipEncoded(" gzip "), is(true));
+        assertThrows(ResponseStatusException.class, () -> isGzipEncoded("zstd"));
+    }
+
+    @Test
+    void isGzipFileShouldCheckFileNameAndContentType() {
+        assertThat(isGzipFile(new MockMultipartFile("file", "trade.csv.gz", "text/csv", new byte[0])), is(true));
+        assertThat(isGzipFile(new MockMultipartFile("file", "trade", "application/gzip", new byte[0])), is(true));
+        assertThat(isGzipFile(new MockMultipartFile("file", "trade.csv", "text/csv", new byte[0])), is(false));
+    }
+
+    @Test
+    void compressShouldEmitEveryFlushedChunk() throws Exception {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        OutputStream outputStream = compress(compressed);
+        outputStream.write("20160101,Treasury Bills Domestic,EUR,10.0\n".getBytes(UTF_8));
+        outputStream.flush();
+
+        byte[] flushedChunk = compressed.toByteArray();
+        assertThat(flushedChunk.length, is(greaterThan(0)));
+
+        outputStream.close();
+        byte[] decompressed = decompress(new ByteArrayInputStream(compressed.toByteArray())).readAllBytes();
+        assertThat(new String(decompressed, UTF_8), is(equalTo("20160101,Treasury Bills Domestic,EUR,10.0\n")));
+    }
+}
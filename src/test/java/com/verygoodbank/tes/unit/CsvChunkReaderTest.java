@@ -0,0 +1,65 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.utils.CsvChunkReader;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.server.ResponseStatusException;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+class CsvChunkReaderTest {
+
+    private static List<String> readChunks(CsvChunkReader chunkReader) throws IOException {
+        List<String> chunks = new ArrayList<>();
+        byte[] chunk;
+        while ((chunk = chunkReader.nextChunk()) != null) {
+            chunks.add(new String(chunk, UTF_8));
+        }
+        return chunks;
+    }
+
+    private static CsvChunkReader createChunkReader(String content, int chunkSize, int maxRecordLength) {
+        return new CsvChunkReader(new ByteArrayInputStream(content.getBytes(UTF_8)), chunkSize, maxRecordLength);
+    }
+
+    @Test
+    void chunksShouldEndAtLineFeeds() throws IOException {
+        String content = "date,product_id,currency,price\n20160101,1,EUR,10.0\n20160101,2,EUR,20.0\n";
+
+        List<String> chunks = readChunks(createChunkReader(content, 8, 1024));
+
+        assertThat(chunks, contains("20160101,1,EUR,10.0\n", "20160101,2,EUR,20.0\n"));
+    }
+
+    @Test
+    void chunksShouldEndAtLoneCarriageReturns() throws IOException {
+        String content = "date,product_id,currency,price\r20160101,1,EUR,10.0\r20160101,2,EUR,20.0\r";
+
+        List<String> chunks = readChunks(createChunkReader(content, 8, 1024));
+
+        assertThat(chunks, contains("20160101,1,EUR,10.0\r", "20160101,2,EUR,20.0\r"));
+    }
+
+    @Test
+    void recordLongerThanLimitShouldBeRejected() {
+        String content = "date,product_id,currency,price\n20160101,1," + "E".repeat(200) + ",10.0\n";
+        CsvChunkReader chunkReader = createChunkReader(content, 8, 64);
+
+        ResponseStatusException exception = assertThrows(ResponseStatusException.class, () -> readChunks(chunkReader));
+
+        assertThat(exception.getStatusCode(), is(BAD_REQUEST));
+    }
+
+    @Test
+    void headerLongerThanLimitShouldBeRejected() {
+        CsvChunkReader chunkReader = createChunkReader("date,product_id,currency,price".repeat(10), 8, 64);
+
+        assertThrows(ResponseStatusException.class, () -> readChunks(chunkReader));
+    }
+}
@@ -0,0 +1,238 @@
+package com.verygoodbank.tes.unit;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.core.Hazelcast;
+import com.hazelcast.core.HazelcastInstance;
+import com.verygoodbank.tes.web.config.HazelcastConfig;
+import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.metrics.ProductCacheMetrics;
+import com.verygoodbank.tes.web.service.cache.HazelcastProductStore;
+import com.verygoodbank.tes.web.service.cache.ProductCacheService;
+import com.verygoodbank.tes.web.service.cache.ProductCatalogueSnapshot;
+import com.verygoodbank.tes.web.service.cache.ProductNegativeCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import static com.verygoodbank.tes.web.service.cache.ProductCacheService.PRODUCT_GENERATIONS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+/**
+ * Runs {@link HazelcastProductStore} against two embedded Hazelcast members on the local host,
+ * which stand in for the real cluster: they form a cluster of their own with a unique name on a free port,
+ * and the clients connect to their addresses, so no other Hazelcast instance on the host is involved.
+ */
+class HazelcastProductStoreTest {
+    private static final int PRODUCTS = 2_000;
+    private static final long STAMPED_PRODUCTS = 10_000;
+    private static final long PAGED_PRODUCTS = 100_000;
+
+    private static final String CLUSTER_NAME = "product-store-test-" + UUID.randomUUID();
+
+    private static List<HazelcastInstance> members;
+    private static HazelcastConfig hazelcastConfig;
+    private static HazelcastProductStore productStore;
+
+    @BeforeAll
+    static void startCluster() {
+        int port = findFreePort();
+        members = List.of(
+            Hazelcast.newHazelcastInstance(memberConfig(port)), Hazelcast.newHazelcastInstance(memberConfig(port))
+        );
+        hazelcastConfig = clientConfig();
+        productStore = new HazelcastProductStore(hazelcastConfig, 4, false);
+        Map<Long, Product> products = new HashMap<>();
+        for (long productId = 1; productId <= PRODUCTS; productId++) {
+            products.put(productId, new Product("Product " + productId));
+        }
+        productStore.putAll(products);
+    }
+
+    @AfterAll
+    static void stopCluster() {
+        productStore.shutdown();
+        hazelcastConfig.shutdown();
+        members.forEach(HazelcastInstance::shutdown);
+    }
+
+    @Test
+    void clientShouldSeeProductIdsOwnedByEveryMember() {
+        Set<Object> owners = new HashSet<>();
+        for (long productId = 1; productId <= PRODUCTS; productId++) {
+            owners.add(hazelcastConfig.getPartitionService().getPartition(productId).getOwner().getUuid());
+        }
+
+        assertThat(owners, hasSize(2));
+    }
+
+    @Test
+    void getAllAsyncShouldCombineProductsOfEveryMember() {
+        Set<Long> productIds = new HashSet<>();
+        for (long productId = 1; productId <= PRODUCTS + 10; productId += 3) {
+            productIds.add(productId);
+        }
+
+        Map<Long, Product> products = productStore.getAllAsync(productIds).join();
+
+        Set<Long> expectedProductIds = productIds.stream()
+            .filter(productId -> productId <= PRODUCTS)
+            .collect(Collectors.toSet());
+        assertThat(products.keySet(), is(equalTo(expectedProductIds)));
+        assertThat(products.get(1L).getProductName(), is(equalTo("Product 1")));
+        assertThat(products.get(1999L).getProductName(), is(equalTo("Product 1999")));
+    }
+
+    @Test
+    void getProductIdsShouldReadEveryPartition() {
+        Map<Long, Product> products = new HashMap<>();
+        for (long productId = PAGED_PRODUCTS; productId < PAGED_PRODUCTS + 15_000; productId++) {
+            products.put(productId, new Product("Product " + productId));
+        }
+        productStore.putAll(products);
+        try {
+            Set<Long> productIds = productStore.getProductIds();
+
+            assertThat(productIds.containsAll(products.keySet()), is(true));
+            assertThat(productIds, hasItems(1L, (long) PRODUCTS));
+        } finally {
+            productStore.evictAll(products.keySet());
+        }
+    }
+
+    @Test
+    void evictAllShouldRemoveProductsAndTheirGenerations() {
+        long firstProductId = PAGED_PRODUCTS + 20_000;
+        productStore.putAll(Map.of(firstProductId, new Product("Evicted"), firstProductId + 1, new Product("Kept")));
+        long generation = productStore.nextGeneration();
+        productStore.stampGeneration(Set.of(firstProductId, firstProductId + 1), generation);
+
+        productStore.evictAll(Set.of(firstProductId));
+
+        assertThat(productStore.get(firstProductId), is(nullValue()));
+        assertThat(productStore.get(firstProductId + 1).getProductName(), is(equalTo("Kept")));
+        assertThat(hazelcastConfig.getGenerationMap(PRODUCT_GENERATIONS).containsKey(firstProductId), is(false));
+        productStore.evictAll(Set.of(firstProductId + 1));
+    }
+
+    @Test
+    void getAllAsyncShouldReturnNoProductsForUnknownIds() {
+        Map<Long, Product> products = productStore.getAllAsync(Set.of(PRODUCTS + 1L, PRODUCTS + 2L)).join();
+
+        assertThat(products.entrySet(), is(empty()));
+    }
+
+    @Test
+    void productWrittenThroughAnotherClientShouldNotBeReportedMissing() throws InterruptedException {
+        HazelcastConfig otherHazelcastConfig = clientConfig();
+        HazelcastProductStore otherProductStore = new HazelcastProductStore(otherHazelcastConfig, 4, false);
+        try {
+            ProductCacheService writingService = productCacheService(productStore);
+            ProductCacheService readingService = productCacheService(otherProductStore);
+            readingService.nextGeneration();
+            readingService.rebuildNegativeCache(ProductCatalogueSnapshot.of(42L, Map.of(1L, "Product 1")));
+            long productId = PRODUCTS + 100L;
+            assertThat(readingService.get(productId), is(nullValue()));
+
+            writingService.put(productId, new Product("Added Product"));
+
+            Product product = readingService.get(productId);
+            for (int attempt = 0; product == null && attempt < 100; attempt++) {
+                Thread.sleep(100);
+                product = readingService.get(productId);
+            }
+            assertThat(product.getProductName(), is(equalTo("Added Product")));
+        } finally {
+            otherProductStore.shutdown();
+            otherHazelcastConfig.shutdown();
+        }
+    }
+
+    @Test
+    void generationsShouldIncreaseAcrossClients() {
+        HazelcastConfig otherHazelcastConfig = clientConfig();
+        HazelcastProductStore otherProductStore = new HazelcastProductStore(otherHazelcastConfig, 4, false);
+        try {
+            long generation = productStore.nextGeneration();
+
+            assertThat(otherProductStore.nextGeneration(), is(greaterThan(generation)));
+            assertThat(productStore.nextGeneration(), is(greaterThan(generation + 1)));
+        } finally {
+            otherProductStore.shutdown();
+            otherHazelcastConfig.shutdown();
+        }
+    }
+
+    @Test
+    void removeOlderGenerationsShouldRemoveOnlyStaleProductsOnTheMembers() {
+        Map<Long, Product> products = new HashMap<>();
+        for (long productId = STAMPED_PRODUCTS; productId < STAMPED_PRODUCTS + 100; productId++) {
+            products.put(productId, new Product("Stamped Product " + productId));
+        }
+        productStore.putAll(products);
+        long olderGeneration = productStore.nextGeneration();
+        productStore.stampGeneration(products.keySet(), olderGeneration);
+        long generation = productStore.nextGeneration();
+        Set<Long> currentProductIds = products.keySet().stream()
+            .filter(productId -> productId % 2 == 0)
+            .collect(Collectors.toSet());
+        productStore.stampGeneration(currentProductIds, generation);
+        productStore.stampGeneration(Set.of(STAMPED_PRODUCTS), olderGeneration);
+
+        int removed = productStore.removeOlderGenerations(generation);
+
+        assertThat(removed, is(50));
+        Map<Long, Product> remainingProducts = productStore.getAll(products.keySet());
+        assertThat(remainingProducts.keySet(), is(equalTo(currentProductIds)));
+        assertThat(productStore.getAll(Set.of(1L, 2L)).keySet(), hasSize(2));
+        assertThat(productStore.removeOlderGenerations(generation), is(0));
+    }
+
+    private static ProductCacheService productCacheService(HazelcastProductStore productStore) {
+        return new ProductCacheService(
+            productStore, new ProductCacheMetrics(new SimpleMeterRegistry()),
+            new ProductNegativeCache(true, 60_000, 100, 0.01)
+        );
+    }
+
+    private static HazelcastConfig clientConfig() {
+        List<String> memberAddresses = members.stream()
+            .map(member -> member.getCluster().getLocalMember().getAddress())
+            .map(address -> address.getHost() + ":" + address.getPort())
+            .toList();
+        return new HazelcastConfig(100, 600, 0, CLUSTER_NAME, memberAddresses);
+    }
+
+    private static Config memberConfig(int port) {
+        Config config = new Config().setClusterName(CLUSTER_NAME);
+        config.getNetworkConfig().setPort(port).setPortAutoIncrement(true).setPortCount(10);
+        config.getNetworkConfig().getInterfaces().setEnabled(true).addInterface("127.0.0.1");
+        JoinConfig joinConfig = config.getNetworkConfig().getJoin();
+        joinConfig.getMulticastConfig().setEnabled(false);
+        joinConfig.getAutoDetectionConfig().setEnabled(false);
+        joinConfig.getTcpIpConfig().setEnabled(true);
+        for (int memberPort = port; memberPort < port + 10; memberPort++) {
+            joinConfig.getTcpIpConfig().addMember("127.0.0.1:" + memberPort);
+        }
+        return config;
+    }
+
+    private static int findFreePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException exception) {
+            throw new UncheckedIOException(exception);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.utils.LongObjectHashMap;
+import org.junit.jupiter.api.Test;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class LongObjectHashMapTest {
+
+    @Test
+    void putAndGetShouldHandleZeroAndNegativeKeys() {
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        map.put(0, "zero");
+        map.put(-1, "minus one");
+        map.put(Long.MAX_VALUE, "max");
+
+        assertThat(map.get(0), is(equalTo("zero")));
+        assertThat(map.get(-1), is(equalTo("minus one")));
+        assertThat(map.get(Long.MAX_VALUE), is(equalTo("max")));
+        assertThat(map.get(42), is(nullValue()));
+        assertThat(map.size(), is(3));
+    }
+
+    @Test
+    void mapShouldBehaveLikeHashMapUnderRandomOperations() {
+        LongObjectHashMap<Long> map = new LongObjectHashMap<>();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(7);
+
+        for (int operation = 0; operation < 100_000; operation++) {
+            long key = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertThat(map.remove(key), is(equalTo(expected.remove(key))));
+            } else {
+                assertThat(map.put(key, (long) operation), is(equalTo(expected.put(key, (long) operation))));
+            }
+        }
+
+        assertThat(map.size(), is(expected.size()));
+        expected.forEach((key, value) -> assertThat(map.get(key), is(equalTo(value))));
+        map.forEach((key, value) -> assertThat(expected.get(key), is(equalTo(value))));
+    }
+}
@@ -0,0 +1,80 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.service.OutputFileRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import static java.lang.System.currentTimeMillis;
+import static java.nio.file.Files.exists;
+import static java.nio.file.Files.setLastModifiedTime;
+import static java.nio.file.Files.writeString;
+import static java.util.concurrent.TimeUnit.HOURS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class OutputFileRegistryTest {
+
+    @TempDir
+    private Path outputDirectory;
+
+    @Test
+    void releaseShouldDeleteFileAndStopTrackingIt() throws Exception {
+        OutputFileRegistry registry = new OutputFileRegistry(outputDirectory.toString(), 60);
+        registry.init();
+        Path file = registry.register("trade-1.csv");
+        writeString(file, "date,product_name,currency,price");
+
+        assertThat(file.getParent(), is(equalTo(outputDirectory)));
+        assertThat(registry.isRegistered(file), is(true));
+
+        registry.release(file);
+
+        assertThat(exists(file), is(false));
+        assertThat(registry.getRegisteredFiles(), is(equalTo(0)));
+        registry.shutdown();
+    }
+
+    @Test
+    void registeredFileShouldBeDeletedWhenItExpires() throws Exception {
+        OutputFileRegistry registry = new OutputFileRegistry(outputDirectory.toString(), 0);
+        registry.init();
+        Path file = outputDirectory.resolve("trade-2.csv");
+        writeString(file, "date,product_name,currency,price");
+
+        registry.register("trade-2.csv");
+
+        long deadline = currentTimeMillis() + 5_000;
+        while (registry.isRegistered(file) && currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(registry.isRegistered(file), is(false));
+        assertThat(exists(file), is(false));
+        registry.shutdown();
+    }
+
+    @Test
+    void initShouldDeleteOnlyExpiredLeftoverFiles() throws Exception {
+        Path expiredFile = writeString(outputDirectory.resolve("trade-3.csv"), "date,product_name,currency,price");
+        setLastModifiedTime(expiredFile, FileTime.fromMillis(currentTimeMillis() - HOURS.toMillis(2)));
+        Path recentFile = writeString(outputDirectory.resolve("trade-4.csv"), "date,product_name,currency,price");
+        OutputFileRegistry registry = new OutputFileRegistry(outputDirectory.toString(), 60);
+
+        registry.init();
+
+        assertThat(exists(expiredFile), is(false));
+        assertThat(exists(recentFile), is(true));
+        registry.shutdown();
+    }
+
+    @Test
+    void shutdownShouldDeleteRegisteredFiles() throws Exception {
+        OutputFileRegistry registry = new OutputFileRegistry(outputDirectory.toString(), 60);
+        registry.init();
+        Path file = writeString(registry.register("trade-5.csv"), "date,product_name,currency,price");
+
+        registry.shutdown();
+
+        assertThat(exists(file), is(false));
+    }
+}
@@ -0,0 +1,166 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.metrics.ProductCacheMetrics;
+import com.verygoodbank.tes.web.service.cache.ProductCacheService;
+import com.verygoodbank.tes.web.service.cache.ProductCatalogueSnapshot;
+import com.verygoodbank.tes.web.service.cache.ProductIdListener;
+import com.verygoodbank.tes.web.service.cache.ProductNegativeCache;
+import com.verygoodbank.tes.web.service.cache.ProductStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import java.util.Map;
+import java.util.Set;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProductCacheServiceTest {
+    private ProductStore productStore;
+    private SimpleMeterRegistry meterRegistry;
+    private ProductCacheService productCacheService;
+    private ProductIdListener productIdListener;
+    private ProductCatalogueSnapshot catalogue;
+
+    @BeforeEach
+    void setUp() {
+        productStore = mock(ProductStore.class);
+        meterRegistry = new SimpleMeterRegistry();
+        productCacheService = new ProductCacheService(
+            productStore, new ProductCacheMetrics(meterRegistry), new ProductNegativeCache(true, 60_000, 100, 0.01)
+        );
+        ArgumentCaptor<ProductIdListener> listenerCaptor = ArgumentCaptor.forClass(ProductIdListener.class);
+        verify(productStore).setProductIdListener(listenerCaptor.capture());
+        productIdListener = listenerCaptor.getValue();
+        catalogue = ProductCatalogueSnapshot.of(42L, Map.of(1L, "Treasury Bills Domestic"));
+    }
+
+    @Test
+    void getAllShouldNotLookUpIdsMissingFromStoredProducts() {
+        productCacheService.rebuildNegativeCache(catalogue);
+        when(productStore.getAll(Set.of(1L))).thenReturn(Map.of(1L, new Product("Treasury Bills Domestic")));
+
+        Map<Long, Product> products = productCacheService.getAll(Set.of(1L, 2L, 3L));
+
+        assertThat(products.keySet(), contains(1L));
+        verify(productStore).getAll(Set.of(1L));
+        assertThat(meterRegistry.get("products.cache.lookups").tag("result", "negative").counter().count(), is(2.0));
+    }
+
+    @Test
+    void getShouldRememberMissesUntilProductIsWritten() {
+        Product product = new Product("Corporate Bonds Domestic");
+
+        assertThat(productCacheService.get(2L), is(nullValue()));
+        assertThat(productCacheService.get(2L), is(nullValue()));
+        verify(productStore, times(1)).get(2L);
+
+        productCacheService.putAll(Map.of(2L, product));
+        when(productStore.get(2L)).thenReturn(product);
+
+        assertThat(productCacheService.get(2L), is(sameInstance(product)));
+    }
+
+    @Test
+    void putShouldAddProductToFilter() {
+        Product product = new Product("Municipal Bonds");
+        productCacheService.rebuildNegativeCache(catalogue);
+
+        productCacheService.put(3L, product);
+        when(productStore.get(3L)).thenReturn(product);
+
+        assertThat(productCacheService.get(3L), is(sameInstance(product)));
+    }
+
+    @Test
+    void productAddedByAnotherNodeShouldBeLookedUp() {
+        Product product = new Product("Municipal Bonds");
+        productCacheService.rebuildNegativeCache(catalogue);
+        assertThat(productCacheService.get(3L), is(nullValue()));
+
+        productIdListener.productAdded(3L);
+        when(productStore.get(3L)).thenReturn(product);
+
+        assertThat(productCacheService.get(3L), is(sameInstance(product)));
+    }
+
+    @Test
+    void rebuildShouldSeedFilterFromCatalogueWithoutReadingStore() {
+        productCacheService.rebuildNegativeCache(catalogue);
+
+        assertThat(productCacheService.get(2L), is(nullValue()));
+        verify(productStore, never()).getProductIds();
+        verify(productStore, never()).get(anyLong());
+    }
+
+    @Test
+    void productAddedBeforeFirstRebuildShouldBeLookedUp() {
+        Product product = new Product("Municipal Bonds");
+        productIdListener.productAdded(3L);
+        productCacheService.rebuildNegativeCache(catalogue);
+        when(productStore.get(3L)).thenReturn(product);
+
+        assertThat(productCacheService.get(3L), is(sameInstance(product)));
+    }
+
+    @Test
+    void rebuildAfterLostProductIdsShouldReadStoredProducts() {
+        Product product = new Product("Municipal Bonds");
+        productCacheService.rebuildNegativeCache(catalogue);
+        productIdListener.productIdsLost();
+        when(productStore.getProductIds()).thenReturn(Set.of(1L, 3L));
+
+        productCacheService.rebuildNegativeCache(catalogue);
+        when(productStore.get(3L)).thenReturn(product);
+
+        assertThat(productCacheService.get(2L), is(nullValue()));
+        assertThat(productCacheService.get(3L), is(sameInstance(product)));
+        verify(productStore, never()).get(2L);
+    }
+
+    @Test
+    void productAddedDuringRebuildShouldBeLookedUp() {
+        Product product = new Product("Municipal Bonds");
+        productCacheService.rebuildNegativeCache(catalogue);
+        productIdListener.productIdsLost();
+        when(productStore.getProductIds()).thenAnswer(invocation -> {
+            productIdListener.productAdded(3L);
+            return Set.of(1L);
+        });
+        productCacheService.rebuildNegativeCache(catalogue);
+        when(productStore.get(3L)).thenReturn(product);
+
+        assertThat(productCacheService.get(3L), is(sameInstance(product)));
+    }
+
+    @Test
+    void lostProductIdsShouldDisableFilterUntilRebuild() {
+        Product product = new Product("Municipal Bonds");
+        productCacheService.rebuildNegativeCache(catalogue);
+
+        productIdListener.productIdsLost();
+        when(productStore.get(3L)).thenReturn(product);
+
+        assertThat(productCacheService.get(3L), is(sameInstance(product)));
+    }
+
+    @Test
+    void negativeCacheShouldBeBypassedForLocalStore() {
+        when(productStore.isLocal()).thenReturn(true);
+        productCacheService.rebuildNegativeCache(catalogue);
+
+        productCacheService.get(2L);
+        productCacheService.get(2L);
+        productCacheService.getAll(Set.of(3L));
+
+        verify(productStore, times(2)).get(2L);
+        verify(productStore).getAll(Set.of(3L));
+    }
+}
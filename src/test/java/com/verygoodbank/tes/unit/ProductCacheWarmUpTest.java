@@ -0,0 +1,79 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.config.ProductCacheReadinessInterceptor;
+import com.verygoodbank.tes.web.dto.CatalogueReloadResult;
+import com.verygoodbank.tes.web.service.cache.ProductCacheWarmUp;
+import com.verygoodbank.tes.web.service.cache.ProductCatalogueService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.server.ResponseStatusException;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
+import static org.springframework.http.HttpStatus.SERVICE_UNAVAILABLE;
+
+class ProductCacheWarmUpTest {
+    private static final CatalogueReloadResult RESULT = new CatalogueReloadResult(2, 0, 0, 0, 1);
+
+    private ProductCatalogueService productCatalogueService;
+    private ProductCacheWarmUp productCacheWarmUp;
+
+    @BeforeEach
+    void setUp() {
+        productCatalogueService = mock(ProductCatalogueService.class);
+        productCacheWarmUp = new ProductCacheWarmUp(productCatalogueService, 10);
+    }
+
+    @AfterEach
+    void tearDown() {
+        productCacheWarmUp.stop();
+    }
+
+    @Test
+    void warmUpShouldRetryUntilTheCatalogueIsLoaded() throws Exception {
+        when(productCatalogueService.reload())
+            .thenThrow(new RuntimeException("An error occurred during connecting to the Hazelcast cluster"))
+            .thenReturn(RESULT);
+
+        productCacheWarmUp.start();
+        productCacheWarmUp.awaitReady(Duration.ofSeconds(5));
+
+        assertThat(productCacheWarmUp.isReady(), is(true));
+        assertThat(productCacheWarmUp.getWarmUp().join(), is(sameInstance(RESULT)));
+        verify(productCatalogueService, times(2)).reload();
+    }
+
+    @Test
+    void interceptorShouldRejectRequestsUntilTheCacheIsWarm() throws Exception {
+        CountDownLatch reloadReleased = new CountDownLatch(1);
+        when(productCatalogueService.reload()).thenAnswer(invocation -> {
+            reloadReleased.await();
+            return RESULT;
+        });
+        ProductCacheReadinessInterceptor interceptor = new ProductCacheReadinessInterceptor(productCacheWarmUp);
+        productCacheWarmUp.start();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        ResponseStatusException exception = assertThrows(
+            ResponseStatusException.class,
+            () -> interceptor.preHandle(new MockHttpServletRequest(), response, new Object())
+        );
+        assertThat(exception.getStatusCode(), is(equalTo(SERVICE_UNAVAILABLE)));
+        assertThat(response.getHeader(RETRY_AFTER), is(not(nullValue())));
+
+        reloadReleased.countDown();
+        productCacheWarmUp.awaitReady(Duration.ofSeconds(5));
+
+        assertThat(interceptor.preHandle(new MockHttpServletRequest(), new MockHttpServletResponse(), new Object()), is(true));
+    }
+}
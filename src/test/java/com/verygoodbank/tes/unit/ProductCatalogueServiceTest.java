@@ -0,0 +1,181 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.dto.CatalogueReloadResult;
+import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.metrics.ProductCacheMetrics;
+import com.verygoodbank.tes.web.service.cache.LocalProductStore;
+import com.verygoodbank.tes.web.service.cache.ProductCacheService;
+import com.verygoodbank.tes.web.service.cache.ProductNegativeCache;
+import com.verygoodbank.tes.web.service.cache.ProductCatalogueService;
+import com.verygoodbank.tes.web.service.cache.ProductCatalogueSnapshot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import static java.nio.file.Files.getLastModifiedTime;
+import static java.nio.file.Files.setLastModifiedTime;
+import static java.nio.file.Files.writeString;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ProductCatalogueServiceTest {
+    @TempDir
+    private Path directory;
+
+    private Path catalogueFile;
+    private Path snapshotFile;
+    private ProductCacheService productCacheService;
+    private ProductCatalogueService productCatalogueService;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        catalogueFile = directory.resolve("product.csv");
+        snapshotFile = directory.resolve("product-catalogue.snapshot");
+        writeString(catalogueFile, "product_id,product_name\n1,Treasury Bills Domestic\n2,Corporate Bonds Domestic\n");
+        productCacheService = spy(new ProductCacheService(
+            new LocalProductStore(), new ProductCacheMetrics(new SimpleMeterRegistry()),
+            new ProductNegativeCache(true, 1000, 100000, 0.01)
+        ));
+        productCatalogueService = new ProductCatalogueService(
+            productCacheService, new DefaultResourceLoader(), catalogueFile.toUri().toString(), 2, snapshotFile.toString()
+        );
+    }
+
+    @Test
+    void reloadShouldWriteOnlyProductsMissingFromTheCacheOnFirstLoad() {
+        Product cachedProduct = new Product("Treasury Bills Domestic");
+        productCacheService.put(1L, cachedProduct);
+        clearInvocations(productCacheService);
+
+        CatalogueReloadResult result = productCatalogueService.reload();
+
+        assertThat(result.getAdded(), is(1));
+        assertThat(result.getUnchanged(), is(1));
+        verify(productCacheService, times(1)).putAll(anyMap());
+        assertThat(productCacheService.get(1L), is(sameInstance(cachedProduct)));
+        assertThat(productCacheService.get(2L).getProductName(), is(equalTo("Corporate Bonds Domestic")));
+    }
+
+    @Test
+    void reloadShouldRemoveProductsOfOlderGenerationsOnFirstLoad() {
+        productCacheService.put(9L, new Product("Interest rate swaps International"));
+        productCacheService.stampGeneration(Set.of(9L), productCacheService.nextGeneration());
+
+        CatalogueReloadResult result = productCatalogueService.reload();
+
+        assertThat(result.getAdded(), is(2));
+        assertThat(result.getRemoved(), is(1));
+        assertThat(productCacheService.get(9L), is(nullValue()));
+        assertThat(productCacheService.removeOlderGenerations(Long.MAX_VALUE), is(2));
+    }
+
+    @Test
+    void reloadShouldNotWriteUnchangedCatalogue() {
+        productCatalogueService.reload();
+        clearInvocations(productCacheService);
+
+        CatalogueReloadResult result = productCatalogueService.reload();
+
+        assertThat(result.getUnchanged(), is(2));
+        verify(productCacheService, never()).putAll(anyMap());
+        verify(productCacheService, never()).evictAll(anySet());
+    }
+
+    @Test
+    void reloadShouldWriteChangedAndNewProductsInBatchesAndEvictRemovedOnes() throws IOException {
+        productCatalogueService.reload();
+        writeString(
+            catalogueFile,
+            "product_id,product_name\n1,Treasury Bills International\n3,Municipal Bonds\n4,Commercial Paper\n"
+        );
+        clearInvocations(productCacheService);
+
+        CatalogueReloadResult result = productCatalogueService.reload();
+
+        assertThat(result.getAdded(), is(2));
+        assertThat(result.getUpdated(), is(1));
+        assertThat(result.getRemoved(), is(1));
+        assertThat(result.getUnchanged(), is(0));
+        verify(productCacheService, times(2)).putAll(anyMap());
+        verify(productCacheService).evictAll(anySet());
+        assertThat(productCacheService.get(1L).getProductName(), is(equalTo("Treasury Bills International")));
+        assertThat(productCacheService.get(2L), is(nullValue()));
+        assertThat(productCacheService.get(4L).getProductName(), is(equalTo("Commercial Paper")));
+    }
+
+    @Test
+    void reloadShouldEvictRemovedProductsInBatches() throws IOException {
+        writeString(
+            catalogueFile,
+            "product_id,product_name\n1,Treasury Bills Domestic\n2,Corporate Bonds Domestic\n3,Municipal Bonds\n"
+        );
+        productCatalogueService.reload();
+        writeString(catalogueFile, "product_id,product_name\n4,Commercial Paper\n");
+        clearInvocations(productCacheService);
+
+        CatalogueReloadResult result = productCatalogueService.reload();
+
+        assertThat(result.getRemoved(), is(3));
+        verify(productCacheService, times(2)).evictAll(anySet());
+        verify(productCacheService, never()).evict(anyLong());
+        assertThat(productCacheService.get(1L), is(nullValue()));
+        assertThat(productCacheService.get(3L), is(nullValue()));
+        assertThat(productCacheService.removeOlderGenerations(Long.MAX_VALUE), is(1));
+    }
+
+    @Test
+    void reloadShouldWriteSnapshotOfLoadedCatalogue() throws IOException {
+        productCatalogueService.reload();
+
+        ProductCatalogueSnapshot snapshot = ProductCatalogueSnapshot.map(snapshotFile);
+        assertThat(snapshot.size(), is(2));
+        assertThat(snapshot.getProductId(1), is(2L));
+        assertThat(snapshot.getProductName(1), is(equalTo("Corporate Bonds Domestic")));
+        assertThat(snapshot.getChecksum(), is(equalTo(productCatalogueService.getSnapshot().getChecksum())));
+    }
+
+    @Test
+    void reloadShouldMapSnapshotOfUnchangedCatalogueOnFirstLoad() throws IOException {
+        productCatalogueService.reload();
+        FileTime snapshotWritten = FileTime.fromMillis(0);
+        setLastModifiedTime(snapshotFile, snapshotWritten);
+        ProductCatalogueService restartedService = new ProductCatalogueService(
+            productCacheService, new DefaultResourceLoader(), catalogueFile.toUri().toString(), 2, snapshotFile.toString()
+        );
+
+        CatalogueReloadResult result = restartedService.reload();
+
+        assertThat(result.getUnchanged(), is(2));
+        assertThat(getLastModifiedTime(snapshotFile), is(equalTo(snapshotWritten)));
+        assertThat(restartedService.getSnapshot().getProductName(0), is(equalTo("Treasury Bills Domestic")));
+    }
+
+    @Test
+    void reloadShouldParseChangedCatalogueOnFirstLoadDespiteSnapshot() throws IOException {
+        productCatalogueService.reload();
+        writeString(catalogueFile, "product_id,product_name\n1,Treasury Bills International\n");
+        ProductCatalogueService restartedService = new ProductCatalogueService(
+            productCacheService, new DefaultResourceLoader(), catalogueFile.toUri().toString(), 2, snapshotFile.toString()
+        );
+
+        CatalogueReloadResult result = restartedService.reload();
+
+        assertThat(result.getUpdated(), is(1));
+        assertThat(result.getRemoved(), is(1));
+        assertThat(productCacheService.get(1L).getProductName(), is(equalTo("Treasury Bills International")));
+        assertThat(ProductCatalogueSnapshot.map(snapshotFile).size(), is(1));
+    }
+}
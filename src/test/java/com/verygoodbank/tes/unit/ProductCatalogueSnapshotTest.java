@@ -0,0 +1,66 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.service.cache.ProductCatalogueSnapshot;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProductCatalogueSnapshotTest {
+    @TempDir
+    private Path directory;
+
+    @Test
+    void snapshotShouldSortProductsById() {
+        ProductCatalogueSnapshot snapshot = ProductCatalogueSnapshot.of(42L, catalogue());
+
+        assertThat(snapshot.getChecksum(), is(42L));
+        assertThat(snapshot.size(), is(3));
+        assertThat(snapshot.getProductId(0), is(1L));
+        assertThat(snapshot.getProductId(2), is(10L));
+        assertThat(snapshot.getProductName(1), is(equalTo("Corporate Bonds Domestic")));
+    }
+
+    @Test
+    void mappedSnapshotShouldMatchWrittenSnapshot() throws IOException {
+        Path snapshotFile = directory.resolve("product-catalogue.snapshot");
+        ProductCatalogueSnapshot snapshot = ProductCatalogueSnapshot.of(42L, catalogue());
+
+        snapshot.writeTo(snapshotFile);
+        ProductCatalogueSnapshot mappedSnapshot = ProductCatalogueSnapshot.map(snapshotFile);
+
+        assertThat(mappedSnapshot.getChecksum(), is(42L));
+        assertThat(mappedSnapshot.size(), is(3));
+        assertThat(mappedSnapshot.getProductId(2), is(10L));
+        assertThat(mappedSnapshot.getProductName(2), is(equalTo("Zürich Municipal Bonds")));
+        for (int index = 0; index < snapshot.size(); index++) {
+            assertThat(snapshot.hasSameProductName(index, mappedSnapshot, index), is(true));
+        }
+        assertThat(snapshot.hasSameProductName(0, mappedSnapshot, 1), is(false));
+    }
+
+    @Test
+    void mapShouldRejectTruncatedSnapshot() throws IOException {
+        Path snapshotFile = directory.resolve("product-catalogue.snapshot");
+        ProductCatalogueSnapshot.of(42L, catalogue()).writeTo(snapshotFile);
+        byte[] content = Files.readAllBytes(snapshotFile);
+        Files.write(snapshotFile, Arrays.copyOf(content, content.length - 1));
+
+        assertThrows(IllegalArgumentException.class, () -> ProductCatalogueSnapshot.map(snapshotFile));
+    }
+
+    private static Map<Long, String> catalogue() {
+        Map<Long, String> catalogue = new LinkedHashMap<>();
+        catalogue.put(10L, "Zürich Municipal Bonds");
+        catalogue.put(1L, "Treasury Bills Domestic");
+        catalogue.put(2L, "Corporate Bonds Domestic");
+        return catalogue;
+    }
+}
@@ -0,0 +1,41 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.service.cache.ProductIdBloomFilter;
+import org.junit.jupiter.api.Test;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ProductIdBloomFilterTest {
+    @Test
+    void mightContainShouldReturnTrueForEveryAddedId() {
+        ProductIdBloomFilter productIds = new ProductIdBloomFilter(10_000, 0.01);
+        for (long productId = 1; productId <= 10_000; productId++) {
+            productIds.add(productId);
+        }
+
+        for (long productId = 1; productId <= 10_000; productId++) {
+            assertThat(productIds.mightContain(productId), is(true));
+        }
+    }
+
+    @Test
+    void mightContainShouldRarelyReturnTrueForIdsThatWereNotAdded() {
+        ProductIdBloomFilter productIds = new ProductIdBloomFilter(10_000, 0.01);
+        for (long productId = 1; productId <= 10_000; productId++) {
+            productIds.add(productId);
+        }
+
+        int falsePositives = 0;
+        for (long productId = 10_001; productId <= 110_000; productId++) {
+            if (productIds.mightContain(productId)) falsePositives++;
+        }
+        assertThat(falsePositives, is(lessThan(2_000)));
+    }
+
+    @Test
+    void emptyFilterShouldContainNothing() {
+        ProductIdBloomFilter productIds = new ProductIdBloomFilter(0, 0.01);
+
+        assertThat(productIds.mightContain(1L), is(false));
+    }
+}
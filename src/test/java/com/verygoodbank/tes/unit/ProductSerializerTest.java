@@ -0,0 +1,86 @@
+package com.verygoodbank.tes.unit;
+
+import com.hazelcast.config.SerializationConfig;
+import com.hazelcast.config.SerializerConfig;
+import com.hazelcast.internal.serialization.Data;
+import com.hazelcast.internal.serialization.SerializationService;
+import com.hazelcast.internal.serialization.impl.DefaultSerializationServiceBuilder;
+import com.verygoodbank.tes.web.config.serializer.ProductSerializer;
+import com.verygoodbank.tes.web.dto.cache.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class ProductSerializerTest {
+    private static final String LONG_PRODUCT_NAME =
+        "Treasury Bills Domestic with a product name longer than the sixty-four bytes of the initial name buffer";
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 16 })
+    void readShouldReturnWrittenProduct(int canonicalProducts) {
+        SerializationService serializationService = serializationService(canonicalProducts);
+
+        String[] productNames = { "Treasury Bills Domestic", LONG_PRODUCT_NAME, "Zürich Obligationen €", "" };
+        for (String productName : productNames) {
+            assertThat(roundTrip(serializationService, productName).getProductName(), is(equalTo(productName)));
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = { 0, 16 })
+    void readShouldReturnProductWithoutNameForNullName(int canonicalProducts) {
+        SerializationService serializationService = serializationService(canonicalProducts);
+
+        assertThat(roundTrip(serializationService, null).getProductName(), is(nullValue()));
+    }
+
+    @Test
+    void readShouldReturnSameInstanceForSameNameWithCanonicalProducts() {
+        SerializationService serializationService = serializationService(16);
+
+        Product product = roundTrip(serializationService, LONG_PRODUCT_NAME);
+
+        assertThat(roundTrip(serializationService, LONG_PRODUCT_NAME), is(sameInstance(product)));
+        assertThat(roundTrip(serializationService, "Zürich Obligationen €"), is(not(sameInstance(product))));
+    }
+
+    @Test
+    void readShouldReturnNewInstancesWithoutCanonicalProducts() {
+        SerializationService serializationService = serializationService(0);
+
+        Product product = roundTrip(serializationService, "Treasury Bills Domestic");
+
+        assertThat(roundTrip(serializationService, "Treasury Bills Domestic"), is(not(sameInstance(product))));
+    }
+
+    @Test
+    void readShouldKeepCollidingNamesApart() {
+        // a single canonical product gets four slots, and both "A" and "E" hash to the first one
+        SerializationService serializationService = serializationService(1);
+
+        Product firstProduct = roundTrip(serializationService, "A");
+        Product collidingProduct = roundTrip(serializationService, "E");
+
+        assertThat(firstProduct.getProductName(), is(equalTo("A")));
+        assertThat(collidingProduct.getProductName(), is(equalTo("E")));
+        assertThat(roundTrip(serializationService, "A").getProductName(), is(equalTo("A")));
+        assertThat(roundTrip(serializationService, "E").getProductName(), is(equalTo("E")));
+    }
+
+    private static Product roundTrip(SerializationService serializationService, String productName) {
+        Data data = serializationService.toData(new Product(productName));
+        return serializationService.toObject(data);
+    }
+
+    private static SerializationService serializationService(int canonicalProducts) {
+        SerializationConfig serializationConfig = new SerializationConfig()
+            .addSerializerConfig(new SerializerConfig()
+                .setImplementation(new ProductSerializer(canonicalProducts))
+                .setTypeClass(Product.class));
+        return new DefaultSerializationServiceBuilder()
+            .setConfig(serializationConfig)
+            .build();
+    }
+}
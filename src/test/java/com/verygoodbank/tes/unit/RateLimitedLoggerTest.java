@@ -0,0 +1,62 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.utils.RateLimitedLogger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import java.util.concurrent.atomic.AtomicLong;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RateLimitedLoggerTest {
+    private final AtomicLong nanoClock = new AtomicLong();
+    private Logger logger;
+    private RateLimitedLogger rateLimitedLogger;
+
+    @BeforeEach
+    void setUp() {
+        logger = mock(Logger.class);
+        when(logger.isWarnEnabled()).thenReturn(true);
+        rateLimitedLogger = new RateLimitedLogger(logger, 2, nanoClock::get);
+    }
+
+    @Test
+    void warnShouldDropMessagesOverTheLimitAndReportThemInTheNextSecond() {
+        for (int message = 0; message < 5; message++) {
+            rateLimitedLogger.warn("Product with id {} is null.", message);
+        }
+        verify(logger, times(2)).warn(eq("Product with id {} is null."), any(Object.class));
+
+        nanoClock.addAndGet(1_000_000_000L);
+        rateLimitedLogger.warn("Product with id {} is null.", 5);
+
+        verify(logger).warn("{} log messages were suppressed by the rate limit", 3);
+        verify(logger, times(3)).warn(eq("Product with id {} is null."), any(Object.class));
+    }
+
+    @Test
+    void debugShouldNotCountMessagesWhenDebugIsDisabled() {
+        rateLimitedLogger.debug("There is no name for product with id {}.", 1L);
+        rateLimitedLogger.warn("first");
+        rateLimitedLogger.warn("second");
+
+        verify(logger, never()).debug(anyString(), any(Object.class));
+        verify(logger).warn(eq("first"), any(Object[].class));
+        verify(logger).warn(eq("second"), any(Object[].class));
+    }
+
+    @Test
+    void debugShouldPassPrimitiveArgumentWhenDebugIsEnabled() {
+        when(logger.isDebugEnabled()).thenReturn(true);
+
+        rateLimitedLogger.debug("There is no name for product with id {}.", 1L);
+
+        verify(logger).debug("There is no name for product with id {}.", (Object) 1L);
+    }
+}
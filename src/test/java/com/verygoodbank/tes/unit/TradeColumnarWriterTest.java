@@ -0,0 +1,84 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.dto.Trade;
+import com.verygoodbank.tes.web.dto.TradeOutputFormat;
+import com.verygoodbank.tes.web.utils.TradeColumnarWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import java.nio.ByteBuffer;
+import java.util.List;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TradeColumnarWriterTest {
+
+    private static Trade createTrade(String date, String productName, String currency, double price) {
+        Trade trade = new Trade(date, 1, currency, price);
+        trade.setProductName(productName);
+        return trade;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @Test
+    void encodeShouldWriteDictionaryEncodedColumns() {
+        byte[] batch = TradeColumnarWriter.encode(List.of(
+            createTrade("20160101", "Treasury Bills Domestic", "EUR", 10.0),
+            createTrade("20160102", "Corporate Bonds Domestic", "USD", 20.1),
+            createTrade("20160103", "Treasury Bills Domestic", "EUR", 30.34)
+        ));
+
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        assertThat(buffer.getInt(), is(equalTo(3)));
+        assertThat(buffer.getInt(), is(equalTo(2)));
+        assertThat(readString(buffer), is(equalTo("Treasury Bills Domestic")));
+        assertThat(readString(buffer), is(equalTo("Corporate Bonds Domestic")));
+        assertThat(buffer.getInt(), is(equalTo(2)));
+        assertThat(readString(buffer), is(equalTo("EUR")));
+        assertThat(readString(buffer), is(equalTo("USD")));
+        assertThat(new int[] { buffer.getInt(), buffer.getInt(), buffer.getInt() }, is(equalTo(new int[] { 20160101, 20160102, 20160103 })));
+        assertThat(new int[] { buffer.getInt(), buffer.getInt(), buffer.getInt() }, is(equalTo(new int[] { 0, 1, 0 })));
+        assertThat(new int[] { buffer.getInt(), buffer.getInt(), buffer.getInt() }, is(equalTo(new int[] { 0, 1, 0 })));
+        assertThat(new double[] { buffer.getDouble(), buffer.getDouble(), buffer.getDouble() }, is(equalTo(new double[] { 10.0, 20.1, 30.34 })));
+        assertThat(buffer.get(), is(equalTo((byte) 0)));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    void encodeShouldWriteOffsetsOfDatesWithOffset() {
+        byte[] batch = TradeColumnarWriter.encode(List.of(
+            createTrade("20160101", "Treasury Bills Domestic", "EUR", 10.0),
+            createTrade("20160101+0100", "Treasury Bills Domestic", "EUR", 10.0)
+        ));
+
+        ByteBuffer buffer = ByteBuffer.wrap(batch, batch.length - 1 - 2 * Integer.BYTES, 1 + 2 * Integer.BYTES);
+        assertThat(buffer.get(), is(equalTo((byte) 1)));
+        assertThat(buffer.getInt(), is(equalTo(0)));
+        assertThat(buffer.getInt(), is(equalTo(3600)));
+    }
+
+    @Test
+    void encodeShouldWriteNothingForNoTrades() {
+        assertThat(TradeColumnarWriter.encode(List.of()).length, is(equalTo(0)));
+    }
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+        "|CSV",
+        "*/*|CSV",
+        "text/csv|CSV",
+        "application/vnd.verygoodbank.trades.columnar|COLUMNAR",
+        "text/csv;q=0.5, application/vnd.verygoodbank.trades.columnar|COLUMNAR",
+        "text/csv, application/vnd.verygoodbank.trades.columnar;q=0.5|CSV",
+        "text/csv, application/vnd.verygoodbank.trades.columnar|CSV"
+    })
+    void fromAcceptHeaderShouldPreferTheHighestQuality(String accept, TradeOutputFormat expectedFormat) {
+        assertThat(TradeOutputFormat.fromAcceptHeader(accept), is(equalTo(expectedFormat)));
+    }
+}
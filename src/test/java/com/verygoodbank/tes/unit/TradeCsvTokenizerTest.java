@@ -0,0 +1,64 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.dto.TradeRow;
+import com.verygoodbank.tes.web.utils.TradeCsvTokenizer;
+import org.apache.commons.csv.CSVParser;
+import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+import static com.verygoodbank.tes.web.utils.CSVUtils.TRADE_IN_HEADERS;
+import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvParser;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TradeCsvTokenizerTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "20160101,1,EUR,10.0\n20160101,2,EUR,20.1\n20160102,3,USD,30.34\n",
+        "20160101,1,EUR,10.0\r\n\r\n20160101,-2,EUR,-0.1",
+        "20160101,1,EUR,10.0\r20160101,2,EUR,20.1\r\r20160102,3,\"USD\",30.34\r",
+        "20160101,+1,EUR,1e3\n20160101,1,EUR,.5\n20160101,1,EUR,10.\n20160101,1,EUR,123456789012345678901234.5",
+        "20160101,1,EUR,0.1,extra,values\n20160101,9223372036854775807,EUR,0.30000000000000004",
+        "\"20160101\",1,\"E,UR\",10.0\n2016é,1,€,1",
+    })
+    void tokenizerShouldReadSameValuesAsCommonsCsv(String content) throws IOException {
+        TradeCsvTokenizer tokenizer = new TradeCsvTokenizer(content.getBytes(UTF_8));
+        TradeRow row = new TradeRow();
+
+        try (CSVParser parser = getCsvParser(new StringReader(content), TRADE_IN_HEADERS)) {
+            List<CSVRecord> records = parser.getRecords();
+            for (CSVRecord record : records) {
+                assertThat(tokenizer.next(row), is(true));
+                assertThat(row.getDate(), is(equalTo(record.get("date"))));
+                assertThat(row.getProductId(), is(equalTo(Long.parseLong(record.get("product_id")))));
+                assertThat(row.getCurrency(), is(equalTo(record.get("currency"))));
+                assertThat(row.getPrice(), is(equalTo(Double.parseDouble(record.get("price")))));
+            }
+        }
+        assertThat(tokenizer.next(row), is(false));
+    }
+
+    @Test
+    void tokenizerShouldRejectInvalidNumbers() {
+        TradeRow row = new TradeRow();
+
+        assertThrows(NumberFormatException.class, () -> new TradeCsvTokenizer("20160101,x,EUR,10.0".getBytes(UTF_8)).next(row));
+        assertThrows(NumberFormatException.class, () -> new TradeCsvTokenizer("20160101,1,EUR,1.0.0".getBytes(UTF_8)).next(row));
+        assertThrows(IllegalArgumentException.class, () -> new TradeCsvTokenizer("20160101,1,EUR".getBytes(UTF_8)).next(row));
+    }
+
+    @Test
+    void tokenizerShouldRejectLineBreakInQuotedValue() {
+        TradeRow row = new TradeRow();
+        TradeCsvTokenizer tokenizer = new TradeCsvTokenizer("20160101,1,\"E\nUR\",10.0\n".getBytes(UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> tokenizer.next(row));
+    }
+}
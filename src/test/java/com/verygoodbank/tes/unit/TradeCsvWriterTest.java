@@ -0,0 +1,62 @@
+package com.verygoodbank.tes.unit;
+
+import com.verygoodbank.tes.web.dto.Trade;
+import com.verygoodbank.tes.web.utils.TradeCsvWriter;
+import org.apache.commons.csv.CSVPrinter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import java.io.IOException;
+import java.util.Random;
+import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvPrinter;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class TradeCsvWriterTest {
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "Treasury Bills Domestic", "Bonds, Domestic", "Say \"hi\"", "Multi\nline", "Carriage\rreturn", "",
+        " leading space", "trailing space ", "#hash", "!bang", "$dollar", "tab\t", "Missing Product Name", "Ünïcödé €"
+    })
+    void writerShouldWriteSameRecordAsCsvPrinter(String productName) throws IOException {
+        Trade trade = new Trade("20160101", 1, "EUR", 10.5);
+        trade.setProductName(productName);
+
+        assertThat(write(trade), is(equalTo(print(trade))));
+    }
+
+    @Test
+    void writerShouldWriteSameRecordAsCsvPrinterForRandomValues() throws IOException {
+        Random random = new Random(5);
+        String alphabet = "ab ,\"\r\n#!-'\t";
+        for (int attempt = 0; attempt < 10_000; attempt++) {
+            Trade trade = new Trade(randomString(random, alphabet), 1, randomString(random, alphabet), random.nextGaussian() * 1e4);
+            trade.setProductName(randomString(random, alphabet));
+            assertThat(write(trade), is(equalTo(print(trade))));
+        }
+    }
+
+    private String randomString(Random random, String alphabet) {
+        StringBuilder value = new StringBuilder();
+        int length = random.nextInt(5);
+        for (int index = 0; index < length; index++) {
+            value.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return value.toString();
+    }
+
+    private String write(Trade trade) {
+        StringBuilder out = new StringBuilder();
+        new TradeCsvWriter(out).write(trade);
+        return out.toString();
+    }
+
+    private String print(Trade trade) throws IOException {
+        StringBuilder out = new StringBuilder();
+        try (CSVPrinter csvPrinter = getCsvPrinter(out)) {
+            csvPrinter.printRecord(trade.getDate(), trade.getProductName(), trade.getCurrency(), trade.getPrice());
+        }
+        return out.toString();
+    }
+}
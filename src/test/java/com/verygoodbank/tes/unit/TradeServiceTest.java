@@ -1,22 +1,48 @@
 package com.verygoodbank.tes.unit;
 
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
 import com.verygoodbank.tes.base.BaseConfigurationTest;
+import com.verygoodbank.tes.web.dto.DiscardedTrades;
 import com.verygoodbank.tes.web.dto.cache.Product;
+import com.verygoodbank.tes.web.metrics.TradeEnrichmentMetrics;
+import com.verygoodbank.tes.web.service.OutputFileRegistry;
 import com.verygoodbank.tes.web.service.TradeService;
 import com.verygoodbank.tes.web.service.cache.ProductCacheService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
+import org.slf4j.LoggerFactory;
 import org.springframework.mock.web.MockMultipartFile;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import static com.verygoodbank.tes.web.utils.CSVUtils.TRADE_OUT_HEADERS;
 import static com.verygoodbank.tes.web.utils.CSVUtils.getCsvParser;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.delayedExecutor;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.mockito.ArgumentMatchers.anySet;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.mockito.MockitoAnnotations.openMocks;
 
@@ -25,12 +51,28 @@ class TradeServiceTest extends BaseConfigurationTest {
     @Mock
     private ProductCacheService productCacheService;
 
+    @TempDir
+    private Path outputDirectory;
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutputFileRegistry outputFileRegistry;
     private TradeService tradeService;
 
     @BeforeEach
     void setUp() {
         openMocks(this);
-        tradeService = new TradeService(productCacheService);
+        meterRegistry = new SimpleMeterRegistry();
+        outputFileRegistry = new OutputFileRegistry(outputDirectory.toString(), 60);
+        outputFileRegistry.init();
+        tradeService = new TradeService(
+            productCacheService, outputFileRegistry, new TradeEnrichmentMetrics(meterRegistry), 2, 64, 4, false
+        );
+    }
+
+    @AfterEach
+    void tearDown() {
+        tradeService.shutdown();
+        outputFileRegistry.shutdown();
     }
 
     @Test
@@ -41,7 +83,8 @@ class TradeServiceTest extends BaseConfigurationTest {
             "text/plain",
             "20160101,1,EUR,10.0".getBytes()
         );
-        when(productCacheService.get(1L)).thenReturn(new Product("Dummy Product Name", true));
+        when(productCacheService.getAllAsync(Set.of(1L)))
+            .thenReturn(completedFuture(Map.of(1L, new Product("Dummy Product Name"))));
 
         File enrichedFile = tradeService.enrichTrades(file);
 
@@ -66,10 +109,178 @@ class TradeServiceTest extends BaseConfigurationTest {
             "text/plain",
             "20160101,1,EUR,10.0".getBytes()
         );
-        when(productCacheService.get(1L)).thenReturn(null);
+        when(productCacheService.getAllAsync(Set.of(1L))).thenReturn(completedFuture(Map.of()));
 
         File enrichedFile = tradeService.enrichTrades(file);
 
         assertNotNull(enrichedFile);
+        assertThat(enrichedFile.toPath().getParent(), is(equalTo(outputDirectory)));
+        assertThat(outputFileRegistry.isRegistered(enrichedFile.toPath()), is(true));
+    }
+
+    @Test
+    void enrichTradesShouldStreamEnrichedRecordsIntoOutputStream() throws IOException {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(
+            "date,product_id,currency,price\n20160101,1,EUR,10.0\n2016,1,EUR,11.0\n20160102,2,USD,12.5".getBytes(UTF_8)
+        );
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(productCacheService.getAllAsync(Set.of(1L, 2L)))
+            .thenReturn(completedFuture(Map.of(1L, new Product("Dummy Product Name"))));
+
+        tradeService.enrichTrades(inputStream, outputStream);
+
+        try (CSVParser parser = getCsvParser(new ByteArrayInputStream(outputStream.toByteArray()), TRADE_OUT_HEADERS)) {
+            List<CSVRecord> records = parser.getRecords();
+            assertThat(records, hasSize(2));
+            assertThat(records.get(0).get("product_name"), is(equalTo("Dummy Product Name")));
+            assertThat(records.get(1).get("product_name"), is(equalTo("Missing Product Name")));
+            assertThat(records.get(1).get("price"), is(equalTo("12.5")));
+        }
+    }
+
+    @Test
+    void discardedTradesShouldKeepCountsAndFirstProductIdsWhenMerged() {
+        DiscardedTrades discardedTrades = new DiscardedTrades(2);
+        DiscardedTrades firstChunk = new DiscardedTrades(2);
+        firstChunk.addInvalidDate(1L);
+        firstChunk.addMissingProduct(2L);
+        DiscardedTrades secondChunk = new DiscardedTrades(2);
+        secondChunk.addInvalidDate(3L);
+        secondChunk.addInvalidDate(4L);
+        secondChunk.addInvalidDate(5L);
+
+        discardedTrades.merge(firstChunk);
+        discardedTrades.merge(secondChunk);
+
+        assertThat(discardedTrades.getInvalidDates(), is(4));
+        assertThat(discardedTrades.getMissingProducts(), is(1));
+        assertThat(discardedTrades.getInvalidDateIds(), is(equalTo(new long[] {1L, 3L})));
+        assertThat(discardedTrades.getMissingProductIds(), is(equalTo(new long[] {2L})));
+    }
+
+    @Test
+    void enrichTradesShouldReportDiscardedTradesInInputOrder() {
+        StringBuilder input = new StringBuilder("date,product_id,currency,price\n");
+        for (int productId = 1; productId <= 9; productId++) {
+            input.append("20160101,").append(productId).append(",EUR,10.0\n");
+        }
+        when(productCacheService.getAllAsync(anySet())).thenAnswer(invocation -> {
+            Set<Long> productIds = invocation.getArgument(0);
+            if (!productIds.contains(1L)) return completedFuture(Map.of());
+            return supplyAsync(Map::of, delayedExecutor(200, MILLISECONDS));
+        });
+        ListAppender<ILoggingEvent> appender = new ListAppender<>();
+        Logger logger = (Logger) LoggerFactory.getLogger(TradeService.class);
+        appender.start();
+        logger.addAppender(appender);
+        try {
+            tradeService.enrichTrades(new ByteArrayInputStream(input.toString().getBytes(UTF_8)), new ByteArrayOutputStream());
+        } finally {
+            logger.detachAppender(appender);
+        }
+
+        List<String> warnings = appender.list.stream()
+            .filter(event -> event.getLevel() == Level.WARN)
+            .map(ILoggingEvent::getFormattedMessage)
+            .toList();
+        assertThat(warnings, hasSize(1));
+        assertThat(warnings.get(0), endsWith("first missing product ids [1, 2, 3, 4, 5, 6, 7, 8, 9]"));
+    }
+
+    @Test
+    void enrichTradesShouldRecordRowOutcomesAndRequestSizes() {
+        byte[] input = "date,product_id,currency,price\n20160101,1,EUR,10.0\n2016,1,EUR,11.0\n20160102,2,USD,12.5"
+            .getBytes(UTF_8);
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(productCacheService.getAllAsync(Set.of(1L, 2L)))
+            .thenReturn(completedFuture(Map.of(1L, new Product("Dummy Product Name"))));
+
+        tradeService.enrichTrades(new ByteArrayInputStream(input), outputStream);
+
+        assertThat(meterRegistry.get("trades.enrichment.rows").tag("outcome", "enriched").counter().count(), is(2.0));
+        assertThat(meterRegistry.get("trades.enrichment.rows").tag("outcome", "invalid_date").counter().count(), is(1.0));
+        assertThat(meterRegistry.get("trades.enrichment.rows").tag("outcome", "missing_product").counter().count(), is(1.0));
+        assertThat(meterRegistry.get("trades.enrichment.stage").tag("stage", "parse").timer().count(), is(1L));
+        assertThat(
+            meterRegistry.get("trades.enrichment.request.bytes").tag("direction", "in").summary().totalAmount(),
+            is((double) input.length)
+        );
+        assertThat(
+            meterRegistry.get("trades.enrichment.request.bytes").tag("direction", "out").summary().totalAmount(),
+            is((double) outputStream.size())
+        );
+    }
+
+    @Test
+    void enrichTradesShouldResolveProductNamesOncePerChunk() {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(
+            "date,product_id,currency,price\n20160101,1,EUR,10.0\n20160101,1,EUR,11.0\n20160101,1,EUR,12.0".getBytes(UTF_8)
+        );
+        when(productCacheService.getAllAsync(Set.of(1L)))
+            .thenReturn(completedFuture(Map.of(1L, new Product("Dummy Product Name"))));
+
+        tradeService.enrichTrades(inputStream, new ByteArrayOutputStream());
+
+        verify(productCacheService, times(1)).getAllAsync(anySet());
+    }
+
+    @Test
+    void enrichTradesShouldLookUpEveryTradeWhenProductsAreLocal() {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(
+            "date,product_id,currency,price\n20160101,1,EUR,10.0\n20160101,1,EUR,11.0".getBytes(UTF_8)
+        );
+        when(productCacheService.isLocal()).thenReturn(true);
+        when(productCacheService.getUnrecorded(1L)).thenReturn(new Product("Dummy Product Name"));
+
+        tradeService.enrichTrades(inputStream, new ByteArrayOutputStream());
+
+        verify(productCacheService, times(2)).getUnrecorded(1L);
+        verify(productCacheService).recordLookups(2, 2);
+        verify(productCacheService, never()).getAllAsync(anySet());
+    }
+
+    @Test
+    void enrichTradesShouldKeepOriginalOrderAcrossChunks() throws IOException {
+        StringBuilder input = new StringBuilder("date,product_id,currency,price\n");
+        for (int row = 0; row < 1_000; row++) {
+            input.append("20160101,").append(row % 3).append(",EUR,").append(row).append(".0\n");
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(productCacheService.getAllAsync(anySet())).thenReturn(completedFuture(Map.of(
+            0L, new Product("Product 0"),
+            1L, new Product("Product 1"),
+            2L, new Product("Product 2")
+        )));
+
+        tradeService.enrichTrades(new ByteArrayInputStream(input.toString().getBytes(UTF_8)), outputStream);
+
+        try (CSVParser parser = getCsvParser(new ByteArrayInputStream(outputStream.toByteArray()), TRADE_OUT_HEADERS)) {
+            List<CSVRecord> records = parser.getRecords();
+            assertThat(records, hasSize(1_000));
+            for (int row = 0; row < records.size(); row++) {
+                assertThat(records.get(row).get("product_name"), is(equalTo("Product " + row % 3)));
+                assertThat(records.get(row).get("price"), is(equalTo(row + ".0")));
+            }
+        }
+    }
+
+    @Test
+    void enrichTradesShouldKeepProductNamesContainingDelimiters() throws IOException {
+        ByteArrayInputStream inputStream = new ByteArrayInputStream(
+            "date,product_id,currency,price\n20160101,1,EUR,10.0".getBytes(UTF_8)
+        );
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        when(productCacheService.getAllAsync(Set.of(1L)))
+            .thenReturn(completedFuture(Map.of(1L, new Product("Bonds, \"Domestic\""))));
+
+        tradeService.enrichTrades(inputStream, outputStream);
+
+        try (CSVParser parser = getCsvParser(new ByteArrayInputStream(outputStream.toByteArray()), TRADE_OUT_HEADERS)) {
+            List<CSVRecord> records = parser.getRecords();
+            assertThat(records, hasSize(1));
+            assertThat(records.get(0).get("product_name"), is(equalTo("Bonds, \"Domestic\"")));
+            assertThat(records.get(0).get("currency"), is(equalTo("EUR")));
+            assertThat(records.get(0).get("price"), is(equalTo("10.0")));
+        }
     }
-}
\ No newline at end of file
+}